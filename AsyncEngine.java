@@ -0,0 +1,243 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This class runs the searches of an Engine on a background thread, so a user interface stays responsive while the
+ * computer thinks. A search reports each completed iteration to its listener and can be cancelled.
+ *
+ * While the other player thinks, the engine ponders: it predicts their play with a search, then searches the answer
+ * to that play and to the other plays, closest to the last play first, until they play. Pondered answers are kept, so
+ * the search after a pondered play answers at once, and a search for the board whose answer is being pondered joins
+ * that search instead of starting again. With DictionaryType.TRANSPOSITION the table also stays warm for other plays.
+ *
+ * Once searches start the Engine is only used by the background thread, and listeners are called on that thread.
+ *
+ * @author Ivory Huo
+ */
+public class AsyncEngine {
+
+	private final Engine engine;
+	private final int boardSize;
+	private final ExecutorService worker;
+
+	// Guarded by this
+	private Job current;                                         // The job submitted last
+	private char ponderedSymbol;                                 // The symbol the pondered answers are plays of
+	private final Map<Long, PosPlay> answers = new HashMap<>(); // Pondered answers, by key of the board they answer
+
+	/**
+	 * Receives the progress and the result of a search
+	 */
+	public interface Listener {
+
+		/**
+		 * Called after each completed iteration of the search
+		 *
+		 * @param depth : the depth of the iteration
+		 * @param best : the play it chose
+		 */
+		default void iterationDone(int depth, PosPlay best) {
+		}
+
+		/**
+		 * Called once the search chose its play, unless it was cancelled
+		 *
+		 * @param best : the play and its score
+		 * @param summary : the counters of the search, as written by Engine.searchSummary
+		 */
+		void searchDone(PosPlay best, String summary);
+	}
+
+	/**
+	 * A search or a ponder submitted to the background thread
+	 */
+	public static class Job {
+		private final AtomicBoolean cancelled = new AtomicBoolean();
+		private volatile Listener joined; // Listener of a search waiting for the answer being pondered
+
+		// Guarded by the AsyncEngine
+		private boolean pondering;
+		private boolean answering;        // The ponder is searching the answer to the board of answeringKey
+		private long answeringKey;
+
+		/**
+		 * Stops the job: its search returns within a few thousand nodes and its listener is not called
+		 */
+		public void cancel() {
+			cancelled.set(true);
+		}
+
+		/**
+		 * Checks if the job was cancelled
+		 *
+		 * @return true once cancel was called
+		 */
+		public boolean isCancelled() {
+			return cancelled.get();
+		}
+	}
+
+	/**
+	 * Constructor that creates a background thread for an engine
+	 *
+	 * @param engine : the engine, not used by other threads from now on
+	 */
+	public AsyncEngine(Engine engine) {
+		this.engine = engine;
+		this.boardSize = engine.getConfigurations().getBoardSize();
+		this.worker = Executors.newSingleThreadExecutor(task -> {
+			Thread thread = new Thread(task, "engine");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Starts searching the best play for a symbol on a board, cancelling the job submitted before
+	 *
+	 * @param board : the board, copied before returning
+	 * @param symbol : the symbol to play
+	 * @param listener : told of the progress and of the play chosen
+	 * @return the job, to cancel the search
+	 */
+	public synchronized Job search(Configurations board, char symbol, Listener listener) {
+		long key = board.getKey();
+		boolean pondered = symbol == ponderedSymbol;
+		PosPlay answer = pondered ? answers.get(key) : null;
+		if (pondered && answer == null && current != null && current.pondering && current.answering
+				&& current.answeringKey == key && !current.isCancelled()) {
+			current.joined = listener; // The answer is being searched, wait for it
+			current.pondering = false;
+			return current;
+		}
+		cancel();
+		answers.clear();
+		Job job = new Job();
+		current = job;
+		if (answer != null) {
+			worker.execute(() -> {
+				if (!job.isCancelled()) listener.searchDone(answer, "answered from pondering");
+			});
+		} else {
+			Configurations copy = board.copy();
+			worker.execute(() -> run(job, copy, symbol, listener));
+		}
+		return job;
+	}
+
+	/**
+	 * Starts pondering the plays of a symbol on a board, cancelling the job submitted before
+	 *
+	 * @param board : the board, copied before returning
+	 * @param symbol : the symbol to play next, whose plays are pondered
+	 * @param row : the row of the last play, or -1
+	 * @param col : the column of the last play, or -1
+	 */
+	public synchronized void ponder(Configurations board, char symbol, int row, int col) {
+		cancel();
+		answers.clear();
+		Job job = new Job();
+		job.pondering = true;
+		current = job;
+		ponderedSymbol = symbol == Search.COMPUTER ? Search.HUMAN : Search.COMPUTER;
+		Configurations copy = board.copy();
+		int last = row < 0 ? -1 : row * boardSize + col;
+		worker.execute(() -> ponder(job, copy, symbol, last));
+	}
+
+	/**
+	 * Cancels the job submitted last
+	 */
+	public synchronized void cancel() {
+		if (current != null) current.cancel();
+	}
+
+	/**
+	 * Cancels the job submitted last, stops the background thread and closes the engine
+	 */
+	public synchronized void shutdown() {
+		cancel();
+		if (worker.isShutdown()) return;
+		worker.execute(engine::close); // After the cancelled job returns
+		worker.shutdown();
+	}
+
+	/**
+	 * Method that runs a search on the background thread
+	 */
+	private void run(Job job, Configurations board, char symbol, Listener listener) {
+		if (job.isCancelled()) return;
+		engine.setPosition(board);
+		PosPlay best = engine.bestMove(symbol, job.cancelled, listener::iterationDone);
+		if (best != null && !job.isCancelled()) listener.searchDone(best, engine.searchSummary());
+	}
+
+	/**
+	 * Method that ponders on the background thread: predicts the play of symbol, then searches the answers to its plays
+	 * until the job is cancelled, or a search joins it and gets its answer
+	 */
+	private void ponder(Job job, Configurations board, char symbol, int last) {
+		if (job.isCancelled()) return;
+		char opponent = symbol == Search.COMPUTER ? Search.HUMAN : Search.COMPUTER;
+		engine.setPosition(board);
+		PosPlay predicted = engine.bestMove(symbol, job.cancelled, null);
+		if (predicted == null || predicted.getRow() == -1 || job.isCancelled()) return;
+
+		for (int play : plays(predicted.getRow() * boardSize + predicted.getCol(), last)) {
+			engine.setPosition(board);
+			engine.play(play / boardSize, play % boardSize, symbol);
+			if (engine.isWon() || engine.isDraw()) continue; // Nothing to answer
+			long key = engine.getConfigurations().getKey();
+			synchronized (this) {
+				if (job.isCancelled()) return;
+				job.answering = true;
+				job.answeringKey = key;
+			}
+			PosPlay answer = engine.bestMove(opponent, job.cancelled, (depth, best) -> {
+				Listener joined = job.joined;
+				if (joined != null) joined.iterationDone(depth, best);
+			});
+			Listener joined;
+			synchronized (this) {
+				job.answering = false;
+				joined = job.joined;
+				if (answer == null || job.isCancelled()) return;
+				answers.put(key, answer);
+			}
+			if (joined != null) {
+				joined.searchDone(answer, engine.searchSummary());
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Method that lists the plays to ponder on the board of the engine: the predicted one, then the others by
+	 * distance to the last play
+	 *
+	 * @param predicted : the predicted play
+	 * @param last : the last play, or -1
+	 * @return the plays, row * boardSize + col
+	 */
+	private int[] plays(int predicted, int last) {
+		int[] candidates = new int[boardSize * boardSize];
+		int count = engine.getConfigurations().candidateMoves(candidates);
+		long[] keys = new long[count];
+		for (int i = 0; i < count; i++) {
+			int play = candidates[i];
+			int distance = play == predicted ? -1 : last == -1 ? 0
+					: Math.max(Math.abs(play / boardSize - last / boardSize), Math.abs(play % boardSize - last % boardSize));
+			keys[i] = ((long) (distance + 1) << 32) | play;
+		}
+		Arrays.sort(keys);
+		int[] plays = new int[count];
+		for (int i = 0; i < count; i++) {
+			plays[i] = (int) keys[i];
+		}
+		return plays;
+	}
+}
@@ -0,0 +1,171 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class analyzes positions read one per line from a file or the standard input, without a user interface
+ * Positions are scored by a pool of workers, each with its own Engine, and the results are written in input order
+ * At most a few positions per worker are read ahead, so memory stays bounded however long the input is
+ *
+ * Input lines are a board as read by Engine.setPosition, optionally followed by a tab or ';' and the symbol to play
+ * ('X' or 'O'). The board is not trimmed, since ' ' is an empty cell. The symbol to play is the one Engine.toPlay
+ * finds assuming 'X' played first: a line giving the other symbol is answered with an error, since records of the
+ * same board with different symbols to play would be mixed. Empty lines and lines starting with '#' are skipped.
+ * Each position is answered by a line "board\tsymbol row col score", with row and col -1 if the game is over,
+ * or "board\terror message" if the line cannot be read.
+ *
+ * To run the program type: java BatchAnalysis size length depth [options] [input-file]
+ * Options are those of Play that apply to one search, and --workers=n (default one per processor).
+ * A summary of the throughput is printed on the standard error.
+ *
+ * @author Ivory Huo
+ */
+public class BatchAnalysis {
+
+	private static final int READ_AHEAD = 4; // Positions read ahead per worker
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 3) usage();
+		int size = Integer.parseInt(args[0]);
+		int lengthToWin = Integer.parseInt(args[1]);
+		int depth = Integer.parseInt(args[2]);
+		DictionaryType dictionaryType = DictionaryType.CHAINED;
+		int tableMegabytes = 64;
+		String tablebase = null;
+		String tableFile = null;
+		boolean ordering = true;
+		boolean symmetry = true;
+		long timeBudget = 0;
+		SearchType searchType = SearchType.ALPHA_BETA;
+		int neighbourhood = 0;
+		int workers = Runtime.getRuntime().availableProcessors();
+		String input = null;
+		for (int i = 3; i < args.length; i++) {
+			if (args[i].startsWith("--dict=")) dictionaryType = DictionaryType.parse(args[i].substring("--dict=".length()));
+			else if (args[i].startsWith("--table-mb=")) tableMegabytes = Integer.parseInt(args[i].substring("--table-mb=".length()));
+			else if (args[i].startsWith("--table-file=")) tableFile = args[i].substring("--table-file=".length());
+			else if (args[i].startsWith("--tablebase=")) tablebase = args[i].substring("--tablebase=".length());
+			else if (args[i].equals("--ordering=on") || args[i].equals("--ordering=off")) ordering = args[i].endsWith("on");
+			else if (args[i].equals("--symmetry=on") || args[i].equals("--symmetry=off")) symmetry = args[i].endsWith("on");
+			else if (args[i].startsWith("--time=")) timeBudget = Long.parseLong(args[i].substring("--time=".length()));
+			else if (args[i].startsWith("--neighbourhood=")) neighbourhood = Integer.parseInt(args[i].substring("--neighbourhood=".length()));
+			else if (args[i].startsWith("--search=")) searchType = SearchType.parse(args[i].substring("--search=".length()));
+			else if (args[i].startsWith("--workers=")) workers = Integer.parseInt(args[i].substring("--workers=".length()));
+			else if (!args[i].startsWith("--") && input == null) input = args[i];
+			else usage();
+		}
+		if (tableFile != null) dictionaryType = DictionaryType.OFF_HEAP;
+
+		DictionaryType type = dictionaryType;
+		int megabytes = tableMegabytes;
+		String solved = tablebase;
+		boolean order = ordering;
+		boolean symmetric = symmetry;
+		long budget = timeBudget;
+		SearchType algorithm = searchType;
+		int distance = neighbourhood;
+		String mapped = tableFile;
+		List<Engine> created = Collections.synchronizedList(new ArrayList<>()); // Closed at the end, which saves the table file
+		ThreadLocal<Engine> engines = ThreadLocal.withInitial(() -> {
+			Engine engine = new Engine(size, lengthToWin, depth, type, megabytes, solved, order, symmetric, budget, 1, algorithm);
+			engine.setCandidateDistance(distance);
+			engine.setTableFile(mapped);
+			created.add(engine);
+			return engine;
+		});
+
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		ArrayDeque<Future<String>> pending = new ArrayDeque<>();
+		long start = System.nanoTime();
+		long positions = 0;
+		try (BufferedReader in = input == null
+				? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+				: Files.newBufferedReader(Paths.get(input), StandardCharsets.UTF_8);
+			 PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)))) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				String position = line;
+				if (position.isEmpty() || position.startsWith("#")) continue;
+				if (pending.size() >= READ_AHEAD * workers) {
+					out.println(result(pending.removeFirst()));
+				}
+				pending.addLast(pool.submit(() -> analyze(engines.get(), position)));
+				positions++;
+			}
+			while (!pending.isEmpty()) {
+				out.println(result(pending.removeFirst()));
+			}
+		} finally {
+			pool.shutdownNow();
+			pool.awaitTermination(1, TimeUnit.MINUTES);
+			for (Engine engine : created) engine.close();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.err.printf("%d positions in %.1f s (%.0f positions/s, %d workers)%n", positions, seconds,
+				positions / seconds, workers);
+	}
+
+	/**
+	 * Method that analyzes one input line
+	 *
+	 * @param engine : the engine of the current worker
+	 * @param position : the board, optionally followed by a tab or ';' and the symbol to play
+	 * @return the output line
+	 */
+	static String analyze(Engine engine, String position) {
+		String board = position;
+		String side = null;
+		int separator = Math.max(position.lastIndexOf('\t'), position.lastIndexOf(';'));
+		if (separator != -1) {
+			board = position.substring(0, separator);
+			side = position.substring(separator + 1).trim();
+		}
+		try {
+			engine.setPosition(board);
+		} catch (IllegalArgumentException e) {
+			return board + "\terror " + e.getMessage();
+		}
+		char symbol = engine.toPlay();
+		if (side != null && !side.equalsIgnoreCase(String.valueOf(symbol))) {
+			return board + "\terror " + (side.equalsIgnoreCase("X") || side.equalsIgnoreCase("O")
+					? "'" + side + "' to play, but the board has '" + symbol + "' to play"
+					: "Invalid symbol to play '" + side + "'");
+		}
+		PosPlay pos = engine.bestMove(symbol);
+		return board + "\t" + symbol + " " + pos.getRow() + " " + pos.getCol() + " " + pos.getScore();
+	}
+
+	/**
+	 * Method that waits for the result of a position
+	 */
+	private static String result(Future<String> future) throws InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			return "error " + e.getCause();
+		}
+	}
+
+	/* Print the command line syntax and terminate */
+	private static void usage() {
+		System.out.println("Usage: java BatchAnalysis board-size shape-length depth"
+				+ " [--dict=chained|open|concurrent|transposition|offheap] [--table-mb=n] [--table-file=file] [--tablebase=file]"
+				+ " [--ordering=on|off] [--symmetry=on|off] [--time=ms] [--neighbourhood=d] [--search=alphabeta|pvs|mtdf|mcts] [--workers=n] [input-file]");
+		System.exit(0);
+	}
+}
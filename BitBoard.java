@@ -0,0 +1,213 @@
+/**
+ * This class stores the cells taken by one player as a bitset, one bit per cell at index row * boardSize + col
+ * Boards up to 8x8 fit in a single long, larger boards use a long[]
+ * A run of lengthToWin cells is found with shift-and-AND: ANDing the bitset with itself shifted by 1, 2, ..., k-1 steps
+ * leaves a bit set only where a run starts, and a per-direction mask discards runs that would wrap around an edge
+ * 
+ * @author Ivory Huo
+ *
+ */
+public abstract class BitBoard {
+	
+	// Distance in bits between consecutive cells of a run, for each direction
+	protected final int[] steps;
+	// For each direction, the cells where a run of lengthToWin cells can start without leaving the board
+	protected final long[][] startMasks;
+	protected final int lengthToWin;
+	
+	/**
+	 * Constructor that computes the run start masks for the horizontal, vertical and both diagonal directions
+	 * 
+	 * @param boardSize : the size of the board
+	 * @param lengthToWin : the length of the sequence needed to win the game
+	 */
+	protected BitBoard(int boardSize, int lengthToWin) {
+		this.lengthToWin = lengthToWin;
+		int words = (boardSize * boardSize + 63) / 64;
+		int reach = lengthToWin - 1; // Distance from the first to the last cell of a run
+		
+		// Horizontal, vertical, primary diagonal, secondary diagonal
+		steps = new int[] {1, boardSize, boardSize + 1, boardSize - 1};
+		int[] rowSteps = {0, 1, 1, 1};
+		int[] colSteps = {1, 0, 1, -1};
+		startMasks = new long[4][words];
+		for (int d = 0; d < 4; d++) {
+			for (int row = 0; row < boardSize; row++) {
+				for (int col = 0; col < boardSize; col++) {
+					int lastRow = row + rowSteps[d] * reach;
+					int lastCol = col + colSteps[d] * reach;
+					if (lastRow < boardSize && lastCol >= 0 && lastCol < boardSize) {
+						int cell = row * boardSize + col;
+						startMasks[d][cell >>> 6] |= 1L << cell;
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Method that creates the smallest bitset able to hold a board
+	 * 
+	 * @param boardSize : the size of the board
+	 * @param lengthToWin : the length of the sequence needed to win the game
+	 * @return an empty bitset for the board
+	 */
+	public static BitBoard create(int boardSize, int lengthToWin) {
+		if (boardSize * boardSize <= 64) {
+			return new Small(boardSize, lengthToWin);
+		}
+		return new Large(boardSize, lengthToWin);
+	}
+	
+	/**
+	 * Marks a cell as taken
+	 * 
+	 * @param cell : the index of the cell
+	 */
+	public abstract void set(int cell);
+	
+	/**
+	 * Marks a cell as free
+	 * 
+	 * @param cell : the index of the cell
+	 */
+	public abstract void clear(int cell);
+	
+	/**
+	 * Checks if a cell is taken
+	 * 
+	 * @param cell : the index of the cell
+	 * @return true if the cell is taken
+	 */
+	public abstract boolean get(int cell);
+	
+	/**
+	 * Counts the cells taken
+	 * 
+	 * @return the number of bits set
+	 */
+	public abstract int count();
+	
+	/**
+	 * Checks if the taken cells contain a run of lengthToWin cells in any direction
+	 * 
+	 * @return true if there is a winning sequence
+	 */
+	public abstract boolean hasRun();
+	
+	/**
+	 * Bitset held in a single long, for boards up to 8x8
+	 */
+	private static class Small extends BitBoard {
+		private long bits;
+		private final long[] masks = new long[4];
+		
+		Small(int boardSize, int lengthToWin) {
+			super(boardSize, lengthToWin);
+			for (int d = 0; d < 4; d++) {
+				masks[d] = startMasks[d][0];
+			}
+		}
+		
+		public void set(int cell) {
+			bits |= 1L << cell;
+		}
+		
+		public void clear(int cell) {
+			bits &= ~(1L << cell);
+		}
+		
+		public boolean get(int cell) {
+			return (bits & (1L << cell)) != 0;
+		}
+		
+		public int count() {
+			return Long.bitCount(bits);
+		}
+		
+		public boolean hasRun() {
+			for (int d = 0; d < 4; d++) {
+				long run = bits & masks[d]; // A mask of 0 means the direction cannot hold a run on this board
+				for (int i = 1; i < lengthToWin && run != 0; i++) {
+					run &= bits >>> (i * steps[d]);
+				}
+				if (run != 0) return true;
+			}
+			return false;
+		}
+	}
+	
+	/**
+	 * Bitset held in a long[], for boards larger than 8x8
+	 */
+	private static class Large extends BitBoard {
+		private final long[] bits;
+		private final long[] run; // Scratch space for hasRun
+		
+		Large(int boardSize, int lengthToWin) {
+			super(boardSize, lengthToWin);
+			bits = new long[startMasks[0].length];
+			run = new long[bits.length];
+		}
+		
+		public void set(int cell) {
+			bits[cell >>> 6] |= 1L << cell;
+		}
+		
+		public void clear(int cell) {
+			bits[cell >>> 6] &= ~(1L << cell);
+		}
+		
+		public boolean get(int cell) {
+			return (bits[cell >>> 6] & (1L << cell)) != 0;
+		}
+		
+		public int count() {
+			int total = 0;
+			for (long word : bits) {
+				total += Long.bitCount(word);
+			}
+			return total;
+		}
+		
+		public boolean hasRun() {
+			for (int d = 0; d < 4; d++) {
+				long any = 0;
+				for (int w = 0; w < bits.length; w++) {
+					run[w] = bits[w] & startMasks[d][w];
+					any |= run[w];
+				}
+				for (int i = 1; i < lengthToWin && any != 0; i++) {
+					any = andShifted(i * steps[d]);
+				}
+				if (any != 0) return true;
+			}
+			return false;
+		}
+		
+		/**
+		 * ANDs run with bits shifted right by shift positions across word boundaries
+		 * 
+		 * @param shift : the number of bit positions to shift
+		 * @return a non-zero value if any bit of run is still set
+		 */
+		private long andShifted(int shift) {
+			int wordShift = shift >>> 6;
+			int bitShift = shift & 63;
+			long any = 0;
+			for (int w = 0; w < bits.length; w++) {
+				int src = w + wordShift;
+				long shifted = 0;
+				if (src < bits.length) {
+					shifted = bits[src] >>> bitShift;
+					if (bitShift != 0 && src + 1 < bits.length) {
+						shifted |= bits[src + 1] << (64 - bitShift);
+					}
+				}
+				run[w] &= shifted;
+				any |= run[w];
+			}
+			return any;
+		}
+	}
+}
@@ -0,0 +1,184 @@
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.MediaTracker;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import javax.swing.ImageIcon;
+import javax.swing.JComponent;
+
+/**
+ * This class draws a board of any size as a single component, so a 100x100 board opens as fast as a 3x3 one
+ * The square images are read once and scaled once per square size. Only the squares inside the area to repaint are
+ * drawn, a play repaints its own square, and a click is mapped to its square by dividing its coordinates.
+ * A symbol whose image cannot be read is drawn with lines instead.
+ *
+ * @author Ivory Huo
+ */
+public class BoardPanel extends JComponent {
+
+	private static final long serialVersionUID = 1L;
+	private static final int MAX_SQUARE = 100;   // Pixels per square on small boards
+	private static final int MIN_SQUARE = 6;     // Pixels per square on the largest boards
+	private static final int PREFERRED_SIDE = 900; // Pixels of the board once squares are below MAX_SQUARE
+
+	private final int boardSize;
+	private final char[] symbols; // Row-major, ' ' for an empty square
+	private final Image[] images; // Read from the files: empty, 'X' then 'O', null if unreadable
+	private final Image[] scaled = new Image[3]; // The images scaled to scaledSquare pixels
+	private int scaledSquare;
+	private ClickListener listener;
+
+	/**
+	 * Receives the squares clicked on
+	 */
+	public interface ClickListener {
+		void squareClicked(int row, int col);
+	}
+
+	/**
+	 * Constructor that creates an empty board
+	 *
+	 * @param boardSize : the number of rows and columns
+	 * @param empty : the image file of an empty square
+	 * @param human : the image file of a square taken by 'X'
+	 * @param computer : the image file of a square taken by 'O'
+	 */
+	public BoardPanel(int boardSize, String empty, String human, String computer) {
+		this.boardSize = boardSize;
+		this.symbols = new char[boardSize * boardSize];
+		Arrays.fill(symbols, ' ');
+		this.images = new Image[] {read(empty), read(human), read(computer)};
+		int side = Math.max(MIN_SQUARE, Math.min(MAX_SQUARE, PREFERRED_SIDE / boardSize)) * boardSize;
+		setPreferredSize(new Dimension(side, side));
+		setOpaque(true);
+		addMouseListener(new MouseAdapter() {
+			@Override
+			public void mousePressed(MouseEvent event) {
+				int square = square();
+				int x = event.getX() - originX(square);
+				int y = event.getY() - originY(square);
+				if (listener == null || square == 0 || x < 0 || y < 0) return;
+				int row = y / square;
+				int col = x / square;
+				if (row < boardSize && col < boardSize) listener.squareClicked(row, col);
+			}
+		});
+	}
+
+	/**
+	 * Method that sets the receiver of the clicks
+	 *
+	 * @param listener : told of every click on a square
+	 */
+	public void setClickListener(ClickListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Shows a symbol on a square, repainting that square only
+	 *
+	 * @param row : the row of the square
+	 * @param col : the column of the square
+	 * @param symbol : 'X', 'O' or ' ' for an empty square
+	 */
+	public void setSymbol(int row, int col, char symbol) {
+		symbols[row * boardSize + col] = symbol;
+		int square = square();
+		repaint(originX(square) + col * square, originY(square) + row * square, square, square);
+	}
+
+	/**
+	 * Draws the squares inside the area to repaint
+	 */
+	@Override
+	protected void paintComponent(Graphics g) {
+		int square = square();
+		int x0 = originX(square);
+		int y0 = originY(square);
+		Rectangle clip = g.getClipBounds();
+		if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+		g.setColor(getBackground() != null ? getBackground() : Color.LIGHT_GRAY);
+		g.fillRect(clip.x, clip.y, clip.width, clip.height);
+		if (square == 0) return;
+		if (square != scaledSquare) scale(square);
+
+		int firstRow = Math.max(0, (clip.y - y0) / square);
+		int lastRow = Math.min(boardSize - 1, (clip.y + clip.height - 1 - y0) / square);
+		int firstCol = Math.max(0, (clip.x - x0) / square);
+		int lastCol = Math.min(boardSize - 1, (clip.x + clip.width - 1 - x0) / square);
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int col = firstCol; col <= lastCol; col++) {
+				drawSquare(g, symbols[row * boardSize + col], x0 + col * square, y0 + row * square, square);
+			}
+		}
+	}
+
+	/**
+	 * Method that draws one square, from its scaled image or with lines
+	 */
+	private void drawSquare(Graphics g, char symbol, int x, int y, int square) {
+		int index = symbol == 'X' ? 1 : symbol == 'O' ? 2 : 0;
+		if (scaled[index] != null) {
+			g.drawImage(scaled[index], x, y, null);
+			return;
+		}
+		g.setColor(Color.WHITE);
+		g.fillRect(x, y, square, square);
+		g.setColor(Color.GRAY);
+		g.drawRect(x, y, square - 1, square - 1);
+		int margin = Math.max(1, square / 5);
+		if (symbol == 'X') {
+			g.setColor(Color.BLUE);
+			g.drawLine(x + margin, y + margin, x + square - margin, y + square - margin);
+			g.drawLine(x + margin, y + square - margin, x + square - margin, y + margin);
+		} else if (symbol == 'O') {
+			g.setColor(Color.RED);
+			g.drawOval(x + margin, y + margin, square - 2 * margin, square - 2 * margin);
+		}
+	}
+
+	/**
+	 * Method that scales the images to a square size, once per size
+	 */
+	private void scale(int square) {
+		for (int i = 0; i < images.length; i++) {
+			if (images[i] == null) {
+				scaled[i] = null;
+				continue;
+			}
+			BufferedImage image = new BufferedImage(square, square, BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g = image.createGraphics();
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g.drawImage(images[i], 0, 0, square, square, null);
+			g.dispose();
+			scaled[i] = image;
+		}
+		scaledSquare = square;
+	}
+
+	private int square() {
+		return Math.min(getWidth(), getHeight()) / boardSize;
+	}
+
+	// The board is centered in the component
+	private int originX(int square) {
+		return (getWidth() - square * boardSize) / 2;
+	}
+
+	private int originY(int square) {
+		return (getHeight() - square * boardSize) / 2;
+	}
+
+	private static Image read(String file) {
+		ImageIcon icon = new ImageIcon(file);
+		return icon.getImageLoadStatus() == MediaTracker.COMPLETE ? icon.getImage() : null;
+	}
+}
@@ -1,3 +1,6 @@
+import java.util.Arrays;
+import java.util.Random;
+
 /**
  * This class implements all the methods needed by algorithm computerPlay
  * 
@@ -8,9 +11,41 @@ public class Configurations {
 	
 	//Instance variables to implement 
 	private char[][] board;
+    private BitBoard xBits; // Cells taken by 'X'
+    private BitBoard oBits; // Cells taken by 'O'
+    private int emptyCount; // Number of cells holding ' ', kept up to date by savePlay
     private int boardSize;
     private int lengthToWin;
     private int maxLevels;
+    private DictionaryType dictionaryType = DictionaryType.CHAINED; // Implementation built by createDictionary
+    private int tableMegabytes = 64; // Memory of a TranspositionTable
+    private String tableFile; // File an OffHeapTranspositionTable is mapped from, or null to keep it in direct buffers
+    private TranspositionTable transpositionTable; // Table of the searches on this board, null for the shared one
+    private String tablebasePath; // Solved positions consulted before the dictionary, or null
+
+    // Compact board key, kept up to date by savePlay
+    private static final long ZOBRIST_SEED = 0x9E3779B97F4A7C15L; // Fixed so equal boards get equal keys in every instance
+    private long[] zobristX; // Random value per cell for 'X'
+    private long[] zobristO; // Random value per cell for 'O'
+    private long zobristSide; // Random value for boards whose symbol to play is not the one the number of plays tells
+    private boolean offTurn; // True if the symbol to play at the root of the search is not the one the number of plays tells
+
+    // Keys of the 8 images of the board under rotations and reflections, image 0 is the board itself
+    // Symmetric boards have the same game tree, so they share one dictionary record: the image with the smallest key
+    private static final int SYMMETRIES = 8;
+    private boolean symmetryReduction = true; // If false only image 0 is kept up to date
+    private int[][] symmetricCell; // symmetricCell[t][cell]: the cell that transform t moves cell to
+    private int[][] inverseCell; // inverseCell[t][cell]: the cell that transform t moves to cell
+    private long[] zobristKeys; // Per image, XOR of the random values of all occupied cells
+    private long[][] packedBoards; // Per image, board packed 2 bits per cell: 0 empty, 1 'X', 2 'O'
+
+    // Candidate plays: the empty cells within candidateDistance rows and columns of a taken cell, kept up to date by savePlay
+    // Taking a play back is a savePlay of ' ', so the set is undone with the play
+    private int candidateDistance; // 0 to make every empty cell a candidate
+    private int[] takenNearby; // Per cell, the number of taken cells within candidateDistance of it
+    private int[] candidates; // The candidate cells, in no particular order
+    private int[] candidateIndex; // Per cell, its index in candidates, -1 if it is not a candidate
+    private int candidateCount;
 
     /**
      * Constructor that initializes the game board and other settings 
@@ -24,6 +59,7 @@ public class Configurations {
         this.lengthToWin = lengthToWin;
         this.maxLevels = maxLevels;
         this.board = new char[boardSize][boardSize];
+        this.emptyCount = boardSize * boardSize;
 
         // Initialize board with spaces ' '
         for (int i = 0; i < boardSize; i++) {
@@ -31,16 +67,284 @@ public class Configurations {
                 board[i][j] = ' ';
             }
         }
+
+        // Initialize the Zobrist values, the empty board has key 0
+        Random random = new Random(ZOBRIST_SEED);
+        zobristX = new long[boardSize * boardSize];
+        zobristO = new long[boardSize * boardSize];
+        for (int i = 0; i < zobristX.length; i++) {
+            zobristX[i] = random.nextLong();
+            zobristO[i] = random.nextLong();
+        }
+        zobristSide = random.nextLong();
+        zobristKeys = new long[SYMMETRIES];
+        packedBoards = new long[SYMMETRIES][(boardSize * boardSize + 31) / 32]; // 32 cells per long
+
+        symmetricCell = symmetricCells(boardSize);
+        inverseCell = new int[SYMMETRIES][boardSize * boardSize];
+        for (int t = 0; t < SYMMETRIES; t++) {
+            for (int cell = 0; cell < boardSize * boardSize; cell++) {
+                inverseCell[t][symmetricCell[t][cell]] = cell;
+            }
+        }
+
+        xBits = BitBoard.create(boardSize, lengthToWin);
+        oBits = BitBoard.create(boardSize, lengthToWin);
+    }
+
+    /**
+     * Returns the cells the 8 rotations and reflections of a board move each cell to
+     * The transforms are the identity, rotations by 90, 180 and 270 degrees, then reflections across the middle column,
+     * the middle row, the main diagonal and the secondary diagonal
+     * 
+     * @param boardSize : the size of the board
+     * @return cells[t][cell]: the cell that transform t moves cell to, cells are row * boardSize + col
+     */
+    public static int[][] symmetricCells(int boardSize) {
+        int[][] cells = new int[SYMMETRIES][boardSize * boardSize];
+        int last = boardSize - 1;
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
+                int[][] images = {{i, j}, {j, last - i}, {last - i, last - j}, {last - j, i},
+                                  {i, last - j}, {last - i, j}, {j, i}, {last - j, last - i}};
+                for (int t = 0; t < SYMMETRIES; t++) {
+                    cells[t][i * boardSize + j] = images[t][0] * boardSize + images[t][1];
+                }
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Constructor that returns an independent copy of this board and its settings
+     * 
+     * @return a new Configurations holding the same plays
+     */
+    public Configurations copy() {
+        Configurations copy = new Configurations(boardSize, lengthToWin, maxLevels);
+        copy.dictionaryType = dictionaryType;
+        copy.tableMegabytes = tableMegabytes;
+        copy.tableFile = tableFile;
+        copy.transpositionTable = transpositionTable;
+        copy.tablebasePath = tablebasePath;
+        copy.symmetryReduction = symmetryReduction;
+        copy.offTurn = offTurn;
+        copy.setCandidateDistance(candidateDistance);
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
+                if (board[i][j] != ' ') copy.savePlay(i, j, board[i][j]);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Returns the size of the board
+     * 
+     * @return the number of rows (and columns) of the board
+     */
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    /**
+     * Returns the length of the sequence needed to win the game
+     * 
+     * @return the length to win
+     */
+    public int getLengthToWin() {
+        return lengthToWin;
+    }
+
+    /**
+     * Returns the maximum level of the game tree that will be explored
+     * 
+     * @return the maximum level
+     */
+    public int getMaxLevels() {
+        return maxLevels;
+    }
+
+    /**
+     * Method that selects the dictionary implementation returned by createDictionary
+     * 
+     * @param dictionaryType : the implementation to build
+     */
+    public void setDictionaryType(DictionaryType dictionaryType) {
+        this.dictionaryType = dictionaryType;
+    }
+
+    /**
+     * Method that selects if symmetric boards share dictionary records
+     * 
+     * @param symmetryReduction : true to key the dictionary by the smallest of the 8 symmetric images of the board
+     */
+    public void setSymmetryReduction(boolean symmetryReduction) {
+        if (symmetryReduction && !this.symmetryReduction) {
+            // The other images were not kept up to date, rebuild them from the board
+            for (int t = 1; t < SYMMETRIES; t++) {
+                zobristKeys[t] = 0;
+                Arrays.fill(packedBoards[t], 0);
+            }
+            this.symmetryReduction = true;
+            for (int i = 0; i < boardSize; i++) {
+                for (int j = 0; j < boardSize; j++) {
+                    updateImages(i * boardSize + j, ' ', board[i][j], 1);
+                }
+            }
+        }
+        this.symmetryReduction = symmetryReduction;
     }
 
     /**
-     * Constructor that returns an empty HashDictionary with a specified size 
+     * Method that restricts the plays the search tries to the neighbourhood of the taken cells
+     * On sparse large boards this cuts the branching by an order of magnitude, at the price of never trying a play
+     * far from every other; a board with no taken cell, or no empty cell near one, still has every empty cell
      * 
-     * @return empty HashDictionary with a specified size 
+     * @param candidateDistance : the number of rows and columns a candidate may be from a taken cell, 0 for every empty cell
      */
-    public HashDictionary createDictionary() {
+    public void setCandidateDistance(int candidateDistance) {
+        if (candidateDistance < 0) throw new IllegalArgumentException("Negative candidate distance: " + candidateDistance);
+        this.candidateDistance = candidateDistance;
+        if (candidateDistance == 0) {
+            takenNearby = candidates = candidateIndex = null;
+            return;
+        }
+        int cells = boardSize * boardSize;
+        takenNearby = new int[cells];
+        candidates = new int[cells];
+        candidateIndex = new int[cells];
+        Arrays.fill(candidateIndex, -1);
+        candidateCount = 0;
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
+                if (board[i][j] != ' ') updateCandidates(i, j, ' ', board[i][j]);
+            }
+        }
+    }
+
+    /**
+     * Returns the distance set by setCandidateDistance
+     * 
+     * @return the number of rows and columns a candidate may be from a taken cell, 0 for every empty cell
+     */
+    public int getCandidateDistance() {
+        return candidateDistance;
+    }
+
+    /**
+     * Method that sets the memory of the TranspositionTable used with DictionaryType.TRANSPOSITION or OFF_HEAP
+     * 
+     * @param tableMegabytes : the memory of the table in megabytes
+     */
+    public void setTableMegabytes(int tableMegabytes) {
+        this.tableMegabytes = tableMegabytes;
+    }
+
+    /**
+     * Method that sets the file the table used with DictionaryType.OFF_HEAP is kept in, so it survives restarts
+     * An existing file keeps its own size and must hold a table for this board size and length to win
+     * 
+     * @param tableFile : the file, created if it does not exist, or null to keep the table in direct buffers
+     */
+    public void setTableFile(String tableFile) {
+        this.tableFile = tableFile;
+    }
+
+    /**
+     * Method that gives the searches on this board and its copies their own table, instead of the one shared by every
+     * search on boards like this one, so their records are not mixed with those of searches with other settings
+     * 
+     * @param transpositionTable : the table used with DictionaryType.TRANSPOSITION or OFF_HEAP, or null for the shared one
+     */
+    public void setTranspositionTable(TranspositionTable transpositionTable) {
+        this.transpositionTable = transpositionTable;
+    }
+
+    /**
+     * Method that sets a tablebase written by TablebaseSolver, consulted by every dictionary createDictionary returns
+     * 
+     * @param tablebasePath : the tablebase file for this board size and length to win, or null for none
+     */
+    public void setTablebase(String tablebasePath) {
+        this.tablebasePath = tablebasePath;
+    }
+
+    /**
+     * Method that sets the symbol to play on the board at the root of the next search
+     * Records are keyed by the board alone when the symbol is the one the number of plays tells, 'X' playing first,
+     * so the boards of a search playing the other symbol get keys of their own and the tablebase is not consulted
+     * 
+     * @param symbol : the symbol to play
+     */
+    public void setSymbolToPlay(char symbol) {
+        int balance = 0;
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
+                if (board[i][j] == 'X') balance++;
+                else if (board[i][j] == 'O') balance--;
+            }
+        }
+        offTurn = symbol != (balance == 0 ? 'X' : 'O');
+    }
+
+    /**
+     * Returns the TranspositionTable of the searches on this board, for DictionaryType.TRANSPOSITION or OFF_HEAP:
+     * the one set by setTranspositionTable, otherwise the one shared by every search on boards like this one with the
+     * same candidate distance, memory and file
+     * 
+     * @return the table, the shared one created with the configured memory and file the first time
+     */
+    public TranspositionTable transpositionTable() {
+        if (transpositionTable != null) return transpositionTable;
+        if (dictionaryType == DictionaryType.OFF_HEAP) {
+            return OffHeapTranspositionTable.shared(boardSize, lengthToWin, candidateDistance, tableMegabytes, tableFile);
+        }
+        return TranspositionTable.shared(boardSize, lengthToWin, candidateDistance, tableMegabytes);
+    }
+
+    /**
+     * Returns the dictionary implementation returned by createDictionary
+     * 
+     * @return the selected implementation
+     */
+    public DictionaryType getDictionaryType() {
+        return dictionaryType;
+    }
+
+    /**
+     * Constructor that returns an empty dictionary with a specified size 
+     * With DictionaryType.TRANSPOSITION or OFF_HEAP the table kept across searches is returned instead, and with a tablebase set
+     * the dictionary is wrapped so solved positions are answered from the tablebase
+     * 
+     * @return empty dictionary of the selected DictionaryType
+     */
+    public DictionaryADT createDictionary() {
+        DictionaryADT dictionary = createSearchDictionary();
+        if (tablebasePath != null && !offTurn) { // The tablebase assumes 'X' played first
+            return new TablebaseDictionary(tablebasePath, boardSize, lengthToWin, dictionary);
+        }
+        return dictionary;
+    }
+
+    /**
+     * Method that builds the dictionary of the selected DictionaryType
+     * 
+     * @return the dictionary
+     */
+    private DictionaryADT createSearchDictionary() {
         // Assuming a good size for the dictionary (choose based on  use case)
         int dictionarySize = 9973; // A prime number close to 10,000
+        if (dictionaryType == DictionaryType.OPEN_ADDRESSING) {
+            return new OpenAddressingDictionary(dictionarySize);
+        }
+        if (dictionaryType.isTranspositionTable()) {
+            return transpositionTable();
+        }
+        if (dictionaryType == DictionaryType.CONCURRENT) {
+            // One stripe per thread is rarely contended, 4x leaves room for uneven hashing
+            return new StripedDictionary(dictionarySize, 4 * Runtime.getRuntime().availableProcessors());
+        }
         return new HashDictionary(dictionarySize);
     }
 
@@ -50,29 +354,68 @@ public class Configurations {
      * @param hashTable
      * @return associated score 
      */
-    public int repeatedConfiguration(HashDictionary hashTable) {
-        String config = boardToString();
-        return hashTable.get(config);
+    public int repeatedConfiguration(DictionaryADT hashTable) {
+        int t = canonicalImage();
+        return hashTable.get(keyOf(t), packedBoards[t]);
+    }
+
+    /**
+     * Returns the record of the current board configuration, with the depth, bound and best play of its score
+     * The best play is stored for the canonical image of the board, fromCanonical maps it back onto this board
+     * 
+     * @param hashTable
+     * @return the record, or null if the board is not stored
+     */
+    public Data lookupConfiguration(DictionaryADT hashTable) {
+        int t = canonicalImage();
+        return hashTable.getData(keyOf(t), packedBoards[t]);
+    }
+
+    /**
+     * Returns the search result of the current board configuration packed in a long, without allocating
+     * The best play is stored for the canonical image of the board, fromCanonical maps it back onto this board
+     * 
+     * @param hashTable
+     * @return the record packed by Data.pack, or Data.NONE if the board is not stored
+     */
+    public long probeConfiguration(DictionaryADT hashTable) {
+        int t = canonicalImage();
+        return hashTable.probe(keyOf(t), packedBoards[t]);
     }
 
     /**
-     * Constructor represents the content of the board as a String, then inserts this String & score in the hash Dictionary
+     * Constructor that inserts the compact key of the board & score in the hash Dictionary
      * 
      * @param hashDictionary : where board configuration & score are to be stored
      * @param score : the score asspciated with the current game configuration
      */
-    public void addConfiguration(HashDictionary hashDictionary, int score) {
-    	
-    	// Convert current board configuration to string 
-        String config = boardToString();
-        
-        // Insert the neww board configuration & its associated score into the hashDictionary
+    public void addConfiguration(DictionaryADT hashDictionary, int score) {
+        // Insert the new board key & its associated score into the hashDictionary
+        // The packed board is copied since savePlay keeps updating it in place
         try {
-            hashDictionary.put(new Data(config, score));
+            int t = canonicalImage();
+            hashDictionary.put(new Data(keyOf(t), packedBoards[t].clone(), score));
         } catch (DictionaryException e) { // If already exists, throw exception
             System.out.println("Configuration already exists in the dictionary.");
         }
     }
+
+    /**
+     * Constructor that stores the search result of the board in the hash Dictionary, replacing the record already stored
+     * Records are updated in place, so only a dictionary that links a new node per configuration allocates
+     * 
+     * @param hashDictionary : where board configuration & score are to be stored
+     * @param score : the score asspciated with the current game configuration
+     * @param depth : the number of levels of the game tree searched below the board
+     * @param bound : Data.EXACT, Data.LOWER_BOUND or Data.UPPER_BOUND
+     * @param bestMove : the best play found on this board, row * boardSize + col, or -1 if none
+     * @return the result of the dictionary's store, 1 if the record went into an occupied bucket
+     */
+    public int storeConfiguration(DictionaryADT hashDictionary, int score, int depth, int bound, int bestMove) {
+        int t = canonicalImage();
+        return hashDictionary.store(keyOf(t), packedBoards[t], score, depth, bound,
+                bestMove == -1 ? -1 : toCanonical(bestMove));
+    }
     
     /**
      * Constructor that stores a symbol in the board[row][col]
@@ -83,7 +426,166 @@ public class Configurations {
     public void savePlay(int row, int col, char symbol) {
     	// Store in board[row][col]
         if (row >= 0 && row < boardSize && col >= 0 && col < boardSize) {
+            int cell = row * boardSize + col;
+            updateImages(cell, board[row][col], symbol, 0);
+            updateBits(board[row][col], cell, false);
+            updateBits(symbol, cell, true);
+            if (board[row][col] == ' ') emptyCount--;
+            if (symbol == ' ') emptyCount++;
+            char oldSymbol = board[row][col];
             board[row][col] = symbol;
+            if (candidateDistance > 0) updateCandidates(row, col, oldSymbol, symbol);
+        }
+    }
+
+    /**
+     * Stores the plays the search tries on the current board: the candidates if there are any, every empty cell otherwise
+     * 
+     * @param moves : receives the plays, row * boardSize + col, and must have room for every cell
+     * @return the number of plays stored, in row-major order unless they are candidates
+     */
+    public int candidateMoves(int[] moves) {
+        if (candidateCount > 0) {
+            System.arraycopy(candidates, 0, moves, 0, candidateCount);
+            return candidateCount;
+        }
+        int count = 0;
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
+                if (board[i][j] == ' ') moves[count++] = i * boardSize + j;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Method that updates the candidates for a change of symbol on a cell, after board holds the new symbol
+     * 
+     * @param row : the row of the cell
+     * @param col : the column of the cell
+     * @param oldSymbol : the symbol on the cell before the change
+     * @param symbol : the symbol on the cell after the change
+     */
+    private void updateCandidates(int row, int col, char oldSymbol, char symbol) {
+        boolean taken = symbol != ' ';
+        if ((oldSymbol != ' ') == taken) return; // One symbol replaced by the other
+        int delta = taken ? 1 : -1;
+        for (int i = Math.max(0, row - candidateDistance); i <= Math.min(boardSize - 1, row + candidateDistance); i++) {
+            for (int j = Math.max(0, col - candidateDistance); j <= Math.min(boardSize - 1, col + candidateDistance); j++) {
+                if (i == row && j == col) continue;
+                int cell = i * boardSize + j;
+                takenNearby[cell] += delta;
+                if (board[i][j] != ' ') continue;
+                if (taken && takenNearby[cell] == 1) addCandidate(cell);
+                else if (!taken && takenNearby[cell] == 0) removeCandidate(cell);
+            }
+        }
+        int cell = row * boardSize + col;
+        if (taken) removeCandidate(cell);
+        else if (takenNearby[cell] > 0) addCandidate(cell);
+    }
+
+    private void addCandidate(int cell) {
+        candidateIndex[cell] = candidateCount;
+        candidates[candidateCount++] = cell;
+    }
+
+    private void removeCandidate(int cell) {
+        int index = candidateIndex[cell];
+        if (index == -1) return;
+        int last = candidates[--candidateCount]; // Move the last candidate into the hole
+        candidates[index] = last;
+        candidateIndex[last] = index;
+        candidateIndex[cell] = -1;
+    }
+
+    /**
+     * Returns the 64-bit Zobrist hash of the current board
+     * 
+     * @return the Zobrist hash, 0 for the empty board
+     */
+    public long getKey() {
+        return zobristKeys[0];
+    }
+
+    /**
+     * Returns a copy of the current board packed 2 bits per cell
+     * 
+     * @return the packed board
+     */
+    public long[] getPackedConfiguration() {
+        return packedBoards[0].clone();
+    }
+
+    /**
+     * Returns the Zobrist hash the dictionary stores the current board under
+     * 
+     * @return the smallest hash of the symmetric images of the board, or the board's own hash without symmetry reduction
+     */
+    public long getCanonicalKey() {
+        return zobristKeys[canonicalImage()];
+    }
+
+    /**
+     * Maps a play on the current board to the same play on the image the dictionary stores the board under
+     * 
+     * @param move : the index of the square, row * boardSize + col
+     * @return the index of the square on the canonical image
+     */
+    public int toCanonical(int move) {
+        return symmetricCell[canonicalImage()][move];
+    }
+
+    /**
+     * Maps a play on the image the dictionary stores the board under back to the current board
+     * 
+     * @param move : the index of the square on the canonical image
+     * @return the index of the square on the current board, row * boardSize + col
+     */
+    public int fromCanonical(int move) {
+        return inverseCell[canonicalImage()][move];
+    }
+
+    /**
+     * Method that returns the dictionary key of an image of the board, which tells the symbol to play
+     * 
+     * @param t : the transform of the image
+     * @return the key of the image, XORed with zobristSide if the symbol to play is not the one the number of plays tells
+     */
+    private long keyOf(int t) {
+        return offTurn ? zobristKeys[t] ^ zobristSide : zobristKeys[t];
+    }
+
+    /**
+     * Method that finds the symmetric image the dictionary stores the board under
+     * 
+     * @return the transform with the smallest key, 0 without symmetry reduction
+     */
+    private int canonicalImage() {
+        if (!symmetryReduction) return 0;
+        int best = 0;
+        for (int t = 1; t < SYMMETRIES; t++) {
+            if (zobristKeys[t] < zobristKeys[best]) best = t;
+        }
+        return best;
+    }
+
+    /**
+     * Method that updates the keys and packed boards of the images for a change of symbol on a cell
+     * 
+     * @param cell : the index of the cell, row * boardSize + col
+     * @param oldSymbol : the symbol on the cell before the change
+     * @param symbol : the symbol on the cell after the change
+     * @param firstImage : the first image to update
+     */
+    private void updateImages(int cell, char oldSymbol, char symbol, int firstImage) {
+        int images = symmetryReduction ? SYMMETRIES : 1;
+        for (int t = firstImage; t < images; t++) {
+            int image = symmetricCell[t][cell];
+            zobristKeys[t] ^= zobristValue(image, oldSymbol) ^ zobristValue(image, symbol); // XOR out old symbol, XOR in new one
+            long[] packed = packedBoards[t];
+            int shift = (image & 31) * 2;
+            packed[image >>> 5] = (packed[image >>> 5] & ~(3L << shift)) | ((long) packedSymbol(symbol) << shift);
         }
     }
 
@@ -97,12 +599,25 @@ public class Configurations {
         return board[row][col] == ' '; //Empty if equal to ' '
     }
 
+    /**
+     * Returns the symbol stored in board[row][col]
+     * @param row
+     * @param col
+     * @return 'X', 'O' or ' ' for an empty square
+     */
+    public char symbolAt(int row, int col) {
+        return board[row][col];
+    }
+
     /**
      * Constructor that returns true if there is a continuous sequence of length at least k fomed by tiles of the kind symbol on the board
      * @param symbol
      * @return true if there is a continuous sequence 
      */
     public boolean wins(char symbol) {
+        // Players' symbols are checked on their bitsets with shift-and-AND
+        if (symbol == 'X') return xBits.hasRun();
+        if (symbol == 'O') return oBits.hasRun();
         // Horizontal, vertical, and diagonal check
         return checkHorizontalWin(symbol) || checkVerticalWin(symbol) || checkDiagonalWin(symbol);
     }
@@ -113,18 +628,69 @@ public class Configurations {
      * @return if game is draw or not 
      */
     public boolean isDraw() {
-    	
-    	// Iterate through board
-        for (int i = 0; i < boardSize; i++) {
-            for (int j = 0; j < boardSize; j++) {
-                if (board[i][j] == ' ') {
-                    return false; // Empty space found, not a draw
-                }
-            }
+        if (emptyCount > 0) {
+            return false; // Empty space found, not a draw
         }
         return !wins('X') && !wins('O'); // No empty spaces and no winner
     }
 
+    /**
+     * Checks if every square of the board is taken
+     * 
+     * @return true if there are no empty squares
+     */
+    public boolean isFull() {
+        return emptyCount == 0;
+    }
+
+    /**
+     * Checks if the symbol on board[row][col] completes a sequence of length at least k through that square
+     * Only the lines through the square are walked, so this costs O(lengthToWin)
+     * 
+     * @param row : the row of the square
+     * @param col : the column of the square
+     * @param symbol : the player's symbol ('X' or 'O') just stored on the square
+     * @return true if a winning sequence goes through the square
+     */
+    public boolean winsAt(int row, int col, char symbol) {
+        return lineLength(row, col, 0, 1, symbol) >= lengthToWin      // Horizontal
+            || lineLength(row, col, 1, 0, symbol) >= lengthToWin      // Vertical
+            || lineLength(row, col, 1, 1, symbol) >= lengthToWin      // Primary diagonal
+            || lineLength(row, col, 1, -1, symbol) >= lengthToWin;    // Secondary diagonal
+    }
+
+    /**
+     * Method that counts the consecutive symbols through a square along one direction, in both senses
+     * 
+     * @param row : the row of the square
+     * @param col : the column of the square
+     * @param dRow : the row step of the direction
+     * @param dCol : the column step of the direction
+     * @param symbol : the player's symbol to count
+     * @return the length of the sequence through the square, stopping once lengthToWin is reached
+     */
+    private int lineLength(int row, int col, int dRow, int dCol, char symbol) {
+        int count = 1; // The square itself
+        for (int r = row + dRow, c = col + dCol; count < lengthToWin && inBounds(r, c) && board[r][c] == symbol; r += dRow, c += dCol) {
+            count++;
+        }
+        for (int r = row - dRow, c = col - dCol; count < lengthToWin && inBounds(r, c) && board[r][c] == symbol; r -= dRow, c -= dCol) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Method that checks if a square is on the board
+     * 
+     * @param row : the row of the square
+     * @param col : the column of the square
+     * @return true if the square is on the board
+     */
+    private boolean inBounds(int row, int col) {
+        return row >= 0 && row < boardSize && col >= 0 && col < boardSize;
+    }
+
     /**
      * Constructor that evaluates the current board state 
      * 
@@ -143,20 +709,61 @@ public class Configurations {
     }
 
     /**
-     * Constructor that converts the board to a string representation
+     * Evaluates the board state right after symbol was stored on board[row][col]
+     * Only valid if the board had no winner before that play, which holds in the game tree search
      * 
-     * @return string representation
+     * @param row : the row of the last play
+     * @param col : the column of the last play
+     * @param symbol : the symbol of the last play ('X' or 'O')
+     * @return same scores as evalBoard()
      */
-    private String boardToString() {
-    	StringBuilder sb = new StringBuilder(); // Initialize StringBuilder to concatenate cell symbols
-        for (int i = 0; i < boardSize; i++) { // Iterate through each row of the board
-            for (int j = 0; j < boardSize; j++) { // Within each row, iterate through each column
-                sb.append(board[i][j]); // Append the symbol in the current cell to the StringBuilder
-            }
-            // Note: Depending on the usage, you might want to append a row separator (like a newline) here
+    public int evalBoard(int row, int col, char symbol) {
+        if (winsAt(row, col, symbol)) {
+            return symbol == 'O' ? 3 : 0; // Computer or human wins
+        } else if (isFull()) {
+            return 2; // Draw
+        } else {
+            return 1; // Game still undecided
         }
-        return sb.toString(); // Convert the StringBuilder to a String and return it
+    }
+
+    /**
+     * Method that returns the Zobrist value of a symbol on a cell
+     * 
+     * @param cell : the index of the cell, row * boardSize + col
+     * @param symbol : the symbol on the cell
+     * @return the random value of the symbol on the cell, 0 for an empty cell
+     */
+    private long zobristValue(int cell, char symbol) {
+        if (symbol == 'X') return zobristX[cell];
+        if (symbol == 'O') return zobristO[cell];
+        return 0;
+    }
 
+    /**
+     * Method that sets or clears a cell in the bitset of a symbol
+     * 
+     * @param symbol : the symbol whose bitset is updated, other symbols have no bitset
+     * @param cell : the index of the cell, row * boardSize + col
+     * @param taken : true to set the cell, false to clear it
+     */
+    private void updateBits(char symbol, int cell, boolean taken) {
+        BitBoard bits = symbol == 'X' ? xBits : symbol == 'O' ? oBits : null;
+        if (bits == null) return;
+        if (taken) bits.set(cell);
+        else bits.clear(cell);
+    }
+
+    /**
+     * Method that returns the 2-bit code of a symbol in the packed board
+     * 
+     * @param symbol : the symbol on the cell
+     * @return 1 for 'X', 2 for 'O', 0 otherwise
+     */
+    private static int packedSymbol(char symbol) {
+        if (symbol == 'X') return 1;
+        if (symbol == 'O') return 2;
+        return 0;
     }
 
     /**
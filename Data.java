@@ -1,15 +1,37 @@
+import java.util.Arrays;
+
 /**
  * This class represents the records that will be stored in the HashDistionary
  * Each record stored in the dictionary will consist of two parts: a configuration & an integer score
+ * A configuration is either a String or a compact key (a 64-bit Zobrist hash plus the packed board used to verify it)
+ * Records stored by the game tree search also tell how deep the score was searched, whether it is exact or only a bound
+ * because of an alpha/beta cut, and the best play found
  * 
  * @author Ivory Huo
  *
  */
 public class Data {
 	
+	// Kinds of score
+	public static final int EXACT = 0;        // The score of the configuration
+	public static final int LOWER_BOUND = 1;  // The score is at least this, the search was cut by beta
+	public static final int UPPER_BOUND = 2;  // The score is at most this, no play reached alpha
+	
+	// Records packed in a long by pack, so dictionaries can answer probe without allocating a Data
+	public static final long NONE = -1L;      // Returned by probe when the configuration is not stored
+	private static final int DEPTH_SHIFT = 8;
+	private static final int BOUND_SHIFT = 24;
+	private static final int MOVE_SHIFT = 32; // Best play + 1, 0 for none
+	private static final int MAX_PACKED_DEPTH = 0xffff;
+	
 	// Instance variables to store the configurations of the board and the score
 	private String config;
+	private long key;
+	private long[] packedConfig;
 	private int score;
+	private int depth; // Levels of the game tree searched below the configuration to compute the score
+	private int bound = EXACT; // Kind of score: EXACT, LOWER_BOUND or UPPER_BOUND
+	private int bestMove = -1; // Best play found, row * boardSize + col, or -1 if none
 	
 	/**
 	 * Constructor that initializes a new Data object with the specified configuration and score
@@ -20,18 +42,80 @@ public class Data {
 	 */
 	public Data (String config, int score) {
 		this.config = config;
+		this.key = stringKey(config);
+		this.score = score;
+	}
+	
+	/**
+	 * Constructor that initializes a new Data object keyed by a compact board key
+	 * 
+	 * @param key : the 64-bit Zobrist hash of the game board
+	 * @param packedConfig : the board packed 2 bits per cell, used to verify the hash on lookups
+	 * @param score : the score associated with this configuration
+	 */
+	public Data (long key, long[] packedConfig, int score) {
+		this(key, packedConfig, score, 0);
+	}
+	
+	/**
+	 * Constructor that initializes a new Data object keyed by a compact board key, with the depth its score was searched to
+	 * 
+	 * @param key : the 64-bit Zobrist hash of the game board
+	 * @param packedConfig : the board packed 2 bits per cell, used to verify the hash on lookups
+	 * @param score : the score associated with this configuration
+	 * @param depth : the number of levels of the game tree searched below the configuration
+	 */
+	public Data (long key, long[] packedConfig, int score, int depth) {
+		this(key, packedConfig, score, depth, EXACT, -1);
+	}
+	
+	/**
+	 * Constructor that initializes a new Data object for a configuration scored by the game tree search
+	 * 
+	 * @param key : the 64-bit Zobrist hash of the game board
+	 * @param packedConfig : the board packed 2 bits per cell, used to verify the hash on lookups
+	 * @param score : the score associated with this configuration
+	 * @param depth : the number of levels of the game tree searched below the configuration
+	 * @param bound : EXACT, LOWER_BOUND or UPPER_BOUND
+	 * @param bestMove : the best play found, row * boardSize + col, or -1 if none
+	 */
+	public Data (long key, long[] packedConfig, int score, int depth, int bound, int bestMove) {
+		this.key = key;
+		this.packedConfig = packedConfig;
 		this.score = score;
+		this.depth = depth;
+		this.bound = bound;
+		this.bestMove = bestMove;
 	}
 	
 	/**
 	 * Returns the configuration stored in this Data object
 	 * 
-	 * @return the configuration of the board game
+	 * @return the configuration of the board game, or null if this record is keyed by a compact key
 	 */
 	public String getConfiguration() {
 		return config;
 	}
 	
+	/**
+	 * Returns the 64-bit key of this Data object
+	 * For String configurations this is derived from the characters of the String
+	 * 
+	 * @return the key used to place this record in a hash table
+	 */
+	public long getKey() {
+		return key;
+	}
+	
+	/**
+	 * Returns the packed board stored in this Data object
+	 * 
+	 * @return the packed board, or null if this record is keyed by a String
+	 */
+	public long[] getPackedConfiguration() {
+		return packedConfig;
+	}
+	
 	/**
 	 * Return the score in this Data
 	 * 
@@ -40,5 +124,168 @@ public class Data {
 	public int getScore() {
 		return score;
 	}
+	
+	/**
+	 * Return the number of levels searched below the configuration to compute the score
+	 * 
+	 * @return the search depth, 0 if unknown
+	 */
+	public int getDepth() {
+		return depth;
+	}
+	
+	/**
+	 * Return the kind of score stored
+	 * 
+	 * @return EXACT, LOWER_BOUND or UPPER_BOUND
+	 */
+	public int getBound() {
+		return bound;
+	}
+	
+	/**
+	 * Return the best play found for the configuration
+	 * 
+	 * @return the index of the square, row * boardSize + col, or -1 if none
+	 */
+	public int getBestMove() {
+		return bestMove;
+	}
+	
+	/**
+	 * Checks if the score answers a search of the configuration
+	 * An exact score always does, a lower bound only if it reaches beta and an upper bound only if it does not exceed alpha
+	 * 
+	 * @param depth : the number of levels the search would explore below the configuration
+	 * @param alpha : the best score the computer is already guaranteed
+	 * @param beta : the best score the human is already guaranteed
+	 * @return true if the record was searched deep enough and its score can be returned without searching
+	 */
+	public boolean answers(int depth, int alpha, int beta) {
+		if (this.depth < depth) return false;
+		return bound == EXACT
+			|| (bound == LOWER_BOUND && score >= beta)
+			|| (bound == UPPER_BOUND && score <= alpha);
+	}
+	
+	/**
+	 * Method that replaces the search result of this record, so a dictionary can update a record in place
+	 * 
+	 * @param score : the new score
+	 * @param depth : the number of levels of the game tree searched below the configuration
+	 * @param bound : EXACT, LOWER_BOUND or UPPER_BOUND
+	 * @param bestMove : the best play found, row * boardSize + col, or -1 if none
+	 */
+	void update(int score, int depth, int bound, int bestMove) {
+		this.score = score;
+		this.depth = depth;
+		this.bound = bound;
+		this.bestMove = bestMove;
+	}
+	
+	/**
+	 * Packs the search result of a record in a long, as returned by DictionaryADT.probe
+	 * 
+	 * @param score : the score, from 0 to 255
+	 * @param depth : the number of levels searched below the configuration, deeper ones are stored as 65,535
+	 * @param bound : EXACT, LOWER_BOUND or UPPER_BOUND
+	 * @param bestMove : the best play found, row * boardSize + col, or -1 if none
+	 * @return the packed record, never NONE
+	 */
+	public static long pack(int score, int depth, int bound, int bestMove) {
+		return (score & 0xff) | ((long) Math.min(depth, MAX_PACKED_DEPTH) << DEPTH_SHIFT)
+				| ((long) bound << BOUND_SHIFT) | ((long) (bestMove + 1) << MOVE_SHIFT);
+	}
+	
+	/**
+	 * Packs the search result of this record in a long
+	 * 
+	 * @return the packed record
+	 */
+	public long pack() {
+		return pack(score, depth, bound, bestMove);
+	}
+	
+	public static int scoreOf(long record) {
+		return (int) record & 0xff;
+	}
+	
+	public static int depthOf(long record) {
+		return (int) (record >>> DEPTH_SHIFT) & MAX_PACKED_DEPTH;
+	}
+	
+	public static int boundOf(long record) {
+		return (int) (record >>> BOUND_SHIFT) & 3;
+	}
+	
+	public static int bestMoveOf(long record) {
+		return (int) (record >>> MOVE_SHIFT) - 1;
+	}
+	
+	/**
+	 * Checks if a packed record answers a search of its configuration, as answers does for a Data
+	 * 
+	 * @param record : the record packed by pack, or NONE
+	 * @param depth : the number of levels the search would explore below the configuration
+	 * @param alpha : the best score the computer is already guaranteed
+	 * @param beta : the best score the human is already guaranteed
+	 * @return true if the record was searched deep enough and its score can be returned without searching
+	 */
+	public static boolean answers(long record, int depth, int alpha, int beta) {
+		if (record == NONE || depthOf(record) < depth) return false;
+		int bound = boundOf(record);
+		int score = scoreOf(record);
+		return bound == EXACT
+			|| (bound == LOWER_BOUND && score >= beta)
+			|| (bound == UPPER_BOUND && score <= alpha);
+	}
+	
+	/**
+	 * Checks if this record is keyed by the given String configuration
+	 * 
+	 * @param config : the configuration string to compare against
+	 * @return true if the configurations are equal
+	 */
+	public boolean matches(String config) {
+		return this.config != null && this.config.equals(config);
+	}
+	
+	/**
+	 * Checks if this record is keyed by the given compact key
+	 * 
+	 * @param key : the 64-bit Zobrist hash to compare against
+	 * @param packedConfig : the packed board to compare against
+	 * @return true if both the hash and the packed board are equal
+	 */
+	public boolean matches(long key, long[] packedConfig) {
+		return this.key == key && this.packedConfig != null && Arrays.equals(this.packedConfig, packedConfig);
+	}
+	
+	/**
+	 * Checks if this record has the same key as another record
+	 * 
+	 * @param other : the record to compare against
+	 * @return true if both records are keyed by the same configuration
+	 */
+	public boolean sameKey(Data other) {
+		if (config != null) {
+			return other.matches(config);
+		}
+		return other.matches(key, packedConfig);
+	}
+	
+	/**
+	 * Computes the 64-bit key of a String configuration
+	 * 
+	 * @param config : the configuration string
+	 * @return the key of the configuration
+	 */
+	public static long stringKey(String config) {
+		long hash = 0; // Initialize hash value to 0
+		for (int i = 0; i < config.length(); i++) { // Iterate through each character of the key
+			hash = 31 * hash + config.charAt(i); // Multiply the current hash by 31 and add the ASCII value of the char
+		}
+		return hash;
+	}
 
 }
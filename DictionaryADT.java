@@ -8,5 +8,24 @@ public interface DictionaryADT {
 
     public int get (String config);
 
+    /* Compact-key variants: key is the Zobrist hash of the board and
+       packedConfig the board packed 2 bits per cell, used to verify it */
+    public void remove (long key, long[] packedConfig) throws DictionaryException;
+
+    public int get (long key, long[] packedConfig);
+
+    /* Returns the whole record stored for a compact key, with its depth,
+       bound and best play, or null if the key is not in the dictionary */
+    public Data getData (long key, long[] packedConfig);
+
+    /* Search variants that allocate nothing per call. probe returns the
+       record of a compact key packed by Data.pack, or Data.NONE. store
+       inserts a record or replaces the one stored for the key in place,
+       copying packedConfig only if it is kept, and returns 1 if the record
+       went into an occupied bucket, 0 otherwise */
+    public long probe (long key, long[] packedConfig);
+
+    public int store (long key, long[] packedConfig, int score, int depth, int bound, int bestMove);
+
     public int numRecords();
 }
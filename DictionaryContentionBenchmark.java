@@ -0,0 +1,79 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * This class measures the throughput of a StripedDictionary shared by several threads
+ * Every thread runs the same mix as the game tree search: mostly lookups, and an insert after each miss,
+ * over a key space small enough for threads to race on the same configurations
+ *
+ * To run the program type: java DictionaryContentionBenchmark [operations-per-thread] [thread-counts...]
+ * The default is 2,000,000 operations at 1, 4, 16 and 32 threads
+ *
+ * @author Ivory Huo
+ */
+public class DictionaryContentionBenchmark {
+
+	private static final int KEY_SPACE = 1 << 20; // Distinct configurations drawn by the threads
+
+	public static void main(String[] args) throws InterruptedException {
+		int operations = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+		int[] threadCounts = {1, 4, 16, 32};
+		if (args.length > 1) {
+			threadCounts = new int[args.length - 1];
+			for (int i = 1; i < args.length; i++) {
+				threadCounts[i - 1] = Integer.parseInt(args[i]);
+			}
+		}
+
+		System.out.println("threads  Mops/s  records");
+		for (int threads : threadCounts) {
+			run(threads, operations); // Warm-up
+			long start = System.nanoTime();
+			DictionaryADT dictionary = run(threads, operations);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.printf("%7d  %6.2f  %7d%n", threads, threads * (double) operations / seconds / 1e6,
+					dictionary.numRecords());
+		}
+	}
+
+	/**
+	 * Method that runs the operation mix on a new shared dictionary
+	 *
+	 * @param threads : the number of threads
+	 * @param operations : the number of operations per thread
+	 * @return the dictionary after every thread finished
+	 */
+	private static DictionaryADT run(int threads, int operations) throws InterruptedException {
+		DictionaryADT dictionary = new StripedDictionary(9973, 4 * threads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> workers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			long seed = t;
+			Thread worker = new Thread(() -> {
+				SplittableRandom random = new SplittableRandom(seed);
+				long[] packed = new long[1];
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int i = 0; i < operations; i++) {
+					packed[0] = random.nextInt(KEY_SPACE);
+					long key = packed[0] * 0x9E3779B97F4A7C15L; // Spread like a Zobrist hash
+					if (dictionary.get(key, packed) == -1) {
+						dictionary.put(new Data(key, packed.clone(), (int) (packed[0] & 3)));
+					}
+				}
+			});
+			worker.start();
+			workers.add(worker);
+		}
+		start.countDown();
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		return dictionary;
+	}
+}
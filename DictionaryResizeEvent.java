@@ -0,0 +1,31 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event recorded for every resize of a HashDictionary
+ * The event lasts from the resize to the last bucket migrated; migrationTime is the time actually spent moving records
+ *
+ * @author Ivory Huo
+ */
+@Name("tictactoe.DictionaryResize")
+@Label("Dictionary Resize")
+@Category("Tic-Tac-Toe")
+@Description("A HashDictionary doubled its table and migrated its records")
+public class DictionaryResizeEvent extends jdk.jfr.Event {
+
+	@Label("Old Size")
+	public int oldSize;
+
+	@Label("New Size")
+	public int newSize;
+
+	@Label("Records")
+	public int records;
+
+	@Label("Migration Time")
+	@Timespan(Timespan.NANOSECONDS)
+	public long migrationTime;
+}
@@ -0,0 +1,49 @@
+/**
+ * This enum lists the DictionaryADT implementations Configurations.createDictionary can build
+ * 
+ * @author Ivory Huo
+ *
+ */
+public enum DictionaryType {
+	CHAINED,          // HashDictionary: separate chaining, verifies the full packed board
+	OPEN_ADDRESSING,  // OpenAddressingDictionary: parallel primitive arrays with linear probing
+	CONCURRENT,       // StripedDictionary: lock-striped HashDictionary, can be shared by search threads
+	TRANSPOSITION,    // TranspositionTable: fixed memory, kept across moves and games, can be shared by search threads
+	OFF_HEAP;         // OffHeapTranspositionTable: a TranspositionTable outside the heap, optionally in a mapped file
+	
+	/**
+	 * Checks if dictionaries of this type are a transposition table kept across moves and games
+	 * 
+	 * @return true for TRANSPOSITION and OFF_HEAP
+	 */
+	public boolean isTranspositionTable() {
+		return this == TRANSPOSITION || this == OFF_HEAP;
+	}
+	
+	/**
+	 * Parses a dictionary type from a command line value such as "chained" or "open"
+	 * 
+	 * @param name : the name of the dictionary type, case insensitive
+	 * @return the matching dictionary type
+	 * @throws IllegalArgumentException if name does not match any dictionary type
+	 */
+	public static DictionaryType parse(String name) {
+		switch (name.toLowerCase()) {
+			case "chained":
+				return CHAINED;
+			case "open":
+			case "open_addressing":
+				return OPEN_ADDRESSING;
+			case "concurrent":
+				return CONCURRENT;
+			case "transposition":
+			case "tt":
+				return TRANSPOSITION;
+			case "offheap":
+			case "off_heap":
+				return OFF_HEAP;
+			default:
+				throw new IllegalArgumentException("Unknown dictionary type: " + name);
+		}
+	}
+}
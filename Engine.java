@@ -0,0 +1,323 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This class plays the game without a user interface: it holds a board and chooses the computer's plays on it
+ * Play, BatchAnalysis and other front ends make their plays through an Engine, and an Engine is used by one thread at a time
+ *
+ * Boards are written as strings of boardSize * boardSize cells in row-major order, 'X' for the human,
+ * 'O' for the computer and '.', '-' or ' ' for an empty cell. Rows may be separated by '/'.
+ *
+ * @author Ivory Huo
+ *
+ */
+public class Engine implements AutoCloseable {
+
+	private Configurations configs;
+	private Search search;
+
+	/**
+	 * Constructor that creates an engine with the default settings of Play
+	 *
+	 * @param boardSize : the size of the board
+	 * @param lengthToWin : the length of the sequence needed to win the game
+	 * @param maxLevels : the maximum level of the game tree that will be explored
+	 */
+	public Engine(int boardSize, int lengthToWin, int maxLevels) {
+		this(boardSize, lengthToWin, maxLevels, DictionaryType.CHAINED, 64, null, true, true, 0, 1);
+	}
+
+	/**
+	 * Constructor that creates an engine
+	 *
+	 * @param boardSize : the size of the board
+	 * @param lengthToWin : the length of the sequence needed to win the game
+	 * @param maxLevels : the maximum level of the game tree that will be explored
+	 * @param dictionaryType : the dictionary implementation storing configurations
+	 * @param tableMegabytes : the memory of a transposition table
+	 * @param tablebase : a file written by TablebaseSolver, or null
+	 * @param ordering : false to try plays in row-major order
+	 * @param symmetry : true to let symmetric boards share dictionary records
+	 * @param timeBudget : if positive, the milliseconds each move is searched by iterative deepening
+	 * @param threads : if greater than 1, the number of threads each search is split over
+	 */
+	public Engine(int boardSize, int lengthToWin, int maxLevels, DictionaryType dictionaryType, int tableMegabytes,
+			String tablebase, boolean ordering, boolean symmetry, long timeBudget, int threads) {
+		this(boardSize, lengthToWin, maxLevels, dictionaryType, tableMegabytes, tablebase, ordering, symmetry, timeBudget,
+				threads, SearchType.ALPHA_BETA);
+	}
+
+	/**
+	 * Constructor that creates an engine choosing its plays with a given algorithm
+	 * With SearchType.MCTS the depth, dictionary, tablebase and symmetry settings are not used, ordering biases the
+	 * playouts and each move is searched for timeBudget milliseconds, MctsSearch.DEFAULT_BUDGET if not positive
+	 * SearchType.PVS and MTDF are searched by one thread whatever the number of threads
+	 *
+	 * @param boardSize : the size of the board
+	 * @param lengthToWin : the length of the sequence needed to win the game
+	 * @param maxLevels : the maximum level of the game tree that will be explored
+	 * @param dictionaryType : the dictionary implementation storing configurations
+	 * @param tableMegabytes : the memory of a transposition table
+	 * @param tablebase : a file written by TablebaseSolver, or null
+	 * @param ordering : false to try plays in row-major order
+	 * @param symmetry : true to let symmetric boards share dictionary records
+	 * @param timeBudget : if positive, the milliseconds each move is searched
+	 * @param threads : if greater than 1, the number of threads each search is split over
+	 * @param searchType : the algorithm choosing the plays
+	 */
+	public Engine(int boardSize, int lengthToWin, int maxLevels, DictionaryType dictionaryType, int tableMegabytes,
+			String tablebase, boolean ordering, boolean symmetry, long timeBudget, int threads, SearchType searchType) {
+		configs = new Configurations(boardSize, lengthToWin, maxLevels);
+		configs.setDictionaryType(dictionaryType);
+		configs.setTableMegabytes(tableMegabytes);
+		configs.setTablebase(tablebase);
+		configs.setSymmetryReduction(symmetry);
+		if (searchType == SearchType.MCTS)
+			search = new MctsSearch(configs, ordering, timeBudget, threads);
+		else if (searchType == SearchType.PVS)
+			search = new PrincipalVariationSearch(configs, ordering, timeBudget);
+		else if (searchType == SearchType.MTDF)
+			search = new MtdfSearch(configs, ordering, timeBudget);
+		else if (threads > 1)
+			search = new ParallelSearch(configs, ordering, timeBudget, threads);
+		else
+			search = new Search(configs, ordering, timeBudget);
+	}
+
+	/**
+	 * Restricts the plays the alpha/beta search tries to the squares near taken ones, see Configurations.setCandidateDistance
+	 *
+	 * @param distance : the number of rows and columns a play may be from a taken square, 0 to try every empty square
+	 */
+	public void setCandidateDistance(int distance) {
+		configs.setCandidateDistance(distance);
+	}
+
+	/**
+	 * Keeps the table used with DictionaryType.OFF_HEAP in a file, see Configurations.setTableFile
+	 * Only has an effect before the first search on boards of this size and length to win
+	 *
+	 * @param path : the file, or null to keep the table in direct buffers
+	 */
+	public void setTableFile(String path) {
+		configs.setTableFile(path);
+	}
+
+	/**
+	 * Gives the searches of this engine their own table for DictionaryType.TRANSPOSITION or OFF_HEAP, instead of the
+	 * one shared by every engine on boards of this size and length to win, see Configurations.setTranspositionTable
+	 *
+	 * @param table : the table, which other engines may also be given, or null for the shared one
+	 */
+	public void setTranspositionTable(TranspositionTable table) {
+		configs.setTranspositionTable(table);
+	}
+
+	/**
+	 * Empties the board
+	 */
+	public void reset() {
+		int boardSize = configs.getBoardSize();
+		for (int row = 0; row < boardSize; row++) {
+			for (int col = 0; col < boardSize; col++) {
+				if (!configs.squareIsEmpty(row, col)) configs.savePlay(row, col, ' ');
+			}
+		}
+	}
+
+	/**
+	 * Replaces the board with the one written in a string
+	 *
+	 * @param board : the cells of the board, as described above
+	 * @throws IllegalArgumentException if the string does not describe a board of this size
+	 */
+	public void setPosition(String board) {
+		int boardSize = configs.getBoardSize();
+		char[] cells = new char[boardSize * boardSize];
+		int count = 0;
+		for (int i = 0; i < board.length(); i++) {
+			char c = board.charAt(i);
+			if (c == '/') continue;
+			if (count == cells.length) {
+				throw new IllegalArgumentException("More than " + cells.length + " cells: " + board);
+			}
+			if (c == 'X' || c == 'x') cells[count++] = Search.HUMAN;
+			else if (c == 'O' || c == 'o') cells[count++] = Search.COMPUTER;
+			else if (c == '.' || c == '-' || c == ' ') cells[count++] = ' ';
+			else throw new IllegalArgumentException("Invalid cell '" + c + "': " + board);
+		}
+		if (count != cells.length) {
+			throw new IllegalArgumentException("Expected " + cells.length + " cells, found " + count + ": " + board);
+		}
+		for (int cell = 0; cell < cells.length; cell++) {
+			configs.savePlay(cell / boardSize, cell % boardSize, cells[cell]);
+		}
+	}
+
+	/**
+	 * Replaces the board with a copy of another board of the same size
+	 *
+	 * @param board : the board to copy
+	 */
+	public void setPosition(Configurations board) {
+		int boardSize = configs.getBoardSize();
+		for (int row = 0; row < boardSize; row++) {
+			for (int col = 0; col < boardSize; col++) {
+				char symbol = board.symbolAt(row, col);
+				if (configs.symbolAt(row, col) != symbol) configs.savePlay(row, col, symbol);
+			}
+		}
+	}
+
+	/**
+	 * Returns the symbol to play next, assuming 'X' played first as in Play
+	 *
+	 * @return 'X' if both players made as many plays, 'O' otherwise
+	 */
+	public char toPlay() {
+		int boardSize = configs.getBoardSize();
+		int balance = 0;
+		for (int row = 0; row < boardSize; row++) {
+			for (int col = 0; col < boardSize; col++) {
+				char symbol = configs.symbolAt(row, col);
+				if (symbol == Search.HUMAN) balance++;
+				else if (symbol == Search.COMPUTER) balance--;
+			}
+		}
+		return balance == 0 ? Search.HUMAN : Search.COMPUTER;
+	}
+
+	/**
+	 * Stores a play on the board
+	 *
+	 * @param row : the row of the play
+	 * @param col : the column of the play
+	 * @param symbol : the symbol played
+	 */
+	public void play(int row, int col, char symbol) {
+		configs.savePlay(row, col, symbol);
+	}
+
+	/**
+	 * Chooses the best play for a symbol on the current board, without making it
+	 *
+	 * @param symbol : the symbol to play
+	 * @return the best play and its score: 3 the computer wins, 0 the human wins, 2 a draw, 1 undecided,
+	 *         or the final score with row and column -1 if the game is over
+	 */
+	public PosPlay bestMove(char symbol) {
+		if (isWon() || configs.isFull()) return new PosPlay(configs.evalBoard(), -1, -1);
+		return search.searchMove(symbol);
+	}
+
+	/**
+	 * Chooses the best play for a symbol on the current board, without making it, and can be stopped from another thread
+	 *
+	 * @param symbol : the symbol to play
+	 * @param cancel : set to true by another thread to stop the search
+	 * @param progress : told of the play of every completed iteration of the search, or null
+	 * @return the best play and its score as bestMove(symbol) does, null if the search was cancelled before choosing one
+	 */
+	public PosPlay bestMove(char symbol, AtomicBoolean cancel, Search.Progress progress) {
+		if (isWon() || configs.isFull()) return new PosPlay(configs.evalBoard(), -1, -1);
+		return search.searchMove(symbol, cancel, progress);
+	}
+
+	/**
+	 * Chooses the best play for a symbol on a board written in a string
+	 *
+	 * @param board : the cells of the board, as described above
+	 * @param symbol : the symbol to play
+	 * @return the best play and its score
+	 * @throws IllegalArgumentException if the string does not describe a board of this size
+	 */
+	public PosPlay analyze(String board, char symbol) {
+		setPosition(board);
+		return bestMove(symbol);
+	}
+
+	/**
+	 * Checks if a square of the board is empty
+	 *
+	 * @param row : the row of the square
+	 * @param col : the column of the square
+	 * @return true if nobody played there
+	 */
+	public boolean squareIsEmpty(int row, int col) {
+		return configs.squareIsEmpty(row, col);
+	}
+
+	/**
+	 * Checks if a play completed a winning sequence
+	 *
+	 * @param row : the row of the play
+	 * @param col : the column of the play
+	 * @param symbol : the symbol played
+	 * @return true if symbol wins with this play
+	 */
+	public boolean winsAt(int row, int col, char symbol) {
+		return configs.winsAt(row, col, symbol);
+	}
+
+	/**
+	 * Checks if either player has a winning sequence on the board
+	 *
+	 * @return true if the game is won
+	 */
+	public boolean isWon() {
+		return configs.wins(Search.HUMAN) || configs.wins(Search.COMPUTER);
+	}
+
+	/**
+	 * Checks if the game ended in a draw
+	 *
+	 * @return true if the board is full and nobody won
+	 */
+	public boolean isDraw() {
+		return configs.isDraw();
+	}
+
+	/**
+	 * Returns the counters of the last search, followed by a line of transposition table counters if one is used
+	 *
+	 * @return a description of the last search
+	 */
+	public String searchSummary() {
+		String summary = "depth=" + search.getSearchDepth() + " " + search.getStats();
+		if (configs.getDictionaryType().isTranspositionTable()) {
+			summary += System.lineSeparator() + configs.transpositionTable();
+		}
+		return summary;
+	}
+
+	/**
+	 * Releases the threads a search with several threads keeps between moves, after which the engine cannot choose plays
+	 * and writes the records of a table kept in a file to the disk
+	 * Owners of engines created with threads greater than 1 or with a table file call it once done with them
+	 */
+	@Override
+	public void close() {
+		search.close();
+		if (configs.getDictionaryType() == DictionaryType.OFF_HEAP) {
+			TranspositionTable table = configs.transpositionTable();
+			if (table instanceof OffHeapTranspositionTable) ((OffHeapTranspositionTable) table).flush();
+		}
+	}
+
+	/**
+	 * Returns the board of the engine
+	 *
+	 * @return the board, changed by every play of the engine
+	 */
+	public Configurations getConfigurations() {
+		return configs;
+	}
+
+	/**
+	 * Returns the search of the engine
+	 *
+	 * @return the search choosing the plays
+	 */
+	public Search getSearch() {
+		return search;
+	}
+}
@@ -9,6 +9,16 @@ public class HashDictionary implements DictionaryADT{
 	//Instance variables 
 	private HashNode[] table;
     private int size;
+    private int count; // Number of records, kept up to date by put and remove
+
+    // While a resize is in progress, records not yet migrated stay in oldTable
+    // Buckets below migrateIndex have already been moved into table
+    private static final int MIGRATE_STEP = 4; // Old buckets moved per put or remove
+    private HashNode[] oldTable;
+    private int oldSize;
+    private int migrateIndex;
+    private long migrateNanos;             // Time spent migrating the records of the resize in progress
+    private DictionaryResizeEvent resize;  // JFR event of the resize in progress, null unless recording
 
     /**
      * Method that is used by HashDictionary to store individual records
@@ -43,38 +53,39 @@ public class HashDictionary implements DictionaryADT{
     }
 
     /**
-     * A hash function that calculates the index in the hash table array for a given key
+     * A hash function that calculates the index in a hash table array for a given key
      * 
-     * @param key : the configuration string to be hashed
+     * @param key : the 64-bit key of the configuration to be hashed
+     * @param tableSize : the number of buckets of the table
      * @return the index in the hash table where the key-value pair should be stored
      */
-    private int hashFunction(String key) {
-    	int hash = 0; // Initialize hash value to 0
-        for (int i = 0; i < key.length(); i++) { // Iterate through each character of the key
-            hash = 31 * hash + key.charAt(i); // Multiply the current hash by 31 and add the ASCII value of the char
-        }
-        return Math.abs(hash) % size; // Ensure the hash index falls within the table bounds
+    private static int hashFunction(long key, int tableSize) {
+        int hash = (int) (key ^ (key >>> 32)); // Fold the high half of the key into the low half
+        return (hash & 0x7fffffff) % tableSize; // Ensure the hash index falls within the table bounds
     }
 
     /**
      * Method that finds the next prime
+     * Only odd candidates and odd divisors up to the square root are tried
      * 
      * @param input
-     * @return
+     * @return the smallest prime greater than input
      */
-    private int findNextPrime(int input) {
-        int counter;
-        input++; // Start with the next number
+    private static int findNextPrime(int input) {
+        int candidate = input + 1; // Start with the next number
+        if (candidate <= 2) return 2;
+        if (candidate % 2 == 0) candidate++; // Even numbers above 2 are never prime
         while (true) {
-            counter = 0;
-            for (int i = 2; i <= Math.sqrt(input); i++) {
-                if (input % i == 0) counter++;
-            }
-            if (counter == 0)
-                return input; // It's a prime number
-            else {
-                input++; // Try the next number
+            boolean prime = true;
+            for (int i = 3; (long) i * i <= candidate; i += 2) {
+                if (candidate % i == 0) {
+                    prime = false;
+                    break;
+                }
             }
+            if (prime)
+                return candidate; // It's a prime number
+            candidate += 2; // Try the next odd number
         }
     }
     
@@ -90,30 +101,33 @@ public class HashDictionary implements DictionaryADT{
     public int put(Data record) throws DictionaryException {
     	
     	// Call resizeIfNeeded at the beginning to ensure the hash table is adequately sized
-        // before attempting to add a new entry.
+        // before attempting to add a new entry, then move a few buckets of a pending resize
         resizeIfNeeded();
-        
-    	// Calculate the hash index for the given configuration using the hash function
-        int hashIndex = hashFunction(record.getConfiguration());
-        
-        // Retrieve the first node (head of the linked list) at the calculated hash index
-        HashNode head = table[hashIndex];
+        migrateBuckets(MIGRATE_STEP);
 
-        // Check if the configuration already exists, iterate through the linked list at the calculated hash index
-        while (head != null) {
-        	// Check if a node with the same configuration as the record exists
-            if (head.data.getConfiguration().equals(record.getConfiguration())) {
-            	// If node is found, throw a DictionaryException indicating a duplicate configuration
-                System.err.println("Duplicate configuration: " + record.getConfiguration());
-                throw new DictionaryException();
-            }
-            // Move to next node in linked list 
-            head = head.next;
+        // Check if the configuration already exists in either table
+        if (findNode(record.getKey(), record.getConfiguration(), record.getPackedConfiguration()) != null) {
+        	// If node is found, throw a DictionaryException indicating a duplicate configuration
+            System.err.println("Duplicate configuration: " + describe(record));
+            throw new DictionaryException();
         }
+        return insert(record);
+    }
+
+    /**
+     * Method that links a new node holding a record at the head of its bucket
+     * 
+     * @param record : the record of a configuration not in the dictionary
+     * @return 1 if the bucket already held a record, 0 otherwise
+     */
+    private int insert(Data record) {
+    	// Calculate the hash index for the given configuration using the hash function
+        int hashIndex = hashFunction(record.getKey(), size);
 
         HashNode newNode = new HashNode(record); // Insert the new node with given record
         newNode.next = table[hashIndex]; // Point new node's next reference to the current head of the list 
         table[hashIndex] = newNode; // Update head of list at hash index to be new node (insert at beginning)
+        count++;
 
         // Check for collision
         if (newNode.next != null) {
@@ -131,25 +145,182 @@ public class HashDictionary implements DictionaryADT{
      * @throws DictionaryException if the configuration is not found in the dictionary
      */
     public void remove(String config) throws DictionaryException {
-    	// Calculate the hash index for the given configuration to find the appropriate bucket
-        int hashIndex = hashFunction(config);
+        migrateBuckets(MIGRATE_STEP);
+        removeNode(findNode(Data.stringKey(config), config, null), 0, config);
+    }
+
+    @Override
+    /**
+     * Constructor that removes the record with the given compact key from the dictionary
+     * 
+     * @param key : the Zobrist hash of the configuration to remove
+     * @param packedConfig : the packed board of the configuration to remove
+     * @throws DictionaryException if the configuration is not found in the dictionary
+     */
+    public void remove(long key, long[] packedConfig) throws DictionaryException {
+        migrateBuckets(MIGRATE_STEP);
+        removeNode(findNode(key, null, packedConfig), key, null);
+    }
+
+    @Override
+    /**
+     * Constructor that returns the score stored in the record of the dictionary with key config, or -1 if config is not in the dictionary
+     * 
+     * @param config : the configuration string whose score is to be retrieved.
+     * @return The score associated with the configuration if found, or -1 if the configuration is not found.
+     */
+    public int get(String config) {
+        HashNode node = findNode(Data.stringKey(config), config, null);
+        return node == null ? -1 : node.data.getScore(); // -1 if not found
+    }
+
+    @Override
+    /**
+     * Constructor that returns the score stored in the record with the given compact key, or -1 if it is not in the dictionary
+     * 
+     * @param key : the Zobrist hash of the configuration whose score is to be retrieved
+     * @param packedConfig : the packed board used to verify the hash
+     * @return The score associated with the configuration if found, or -1 if the configuration is not found.
+     */
+    public int get(long key, long[] packedConfig) {
+        HashNode node = findNode(key, null, packedConfig);
+        return node == null ? -1 : node.data.getScore(); // -1 if not found
+    }
+
+    @Override
+    /**
+     * Constructor that returns the record stored with the given compact key, or null if it is not in the dictionary
+     * 
+     * @param key : the Zobrist hash of the configuration whose record is to be retrieved
+     * @param packedConfig : the packed board used to verify the hash
+     * @return The record of the configuration if found, or null if the configuration is not found.
+     */
+    public Data getData(long key, long[] packedConfig) {
+        HashNode node = findNode(key, null, packedConfig);
+        return node == null ? null : node.data;
+    }
+
+    @Override
+    /**
+     * Constructor that returns the search result stored with the given compact key, without allocating
+     * 
+     * @param key : the Zobrist hash of the configuration whose record is to be retrieved
+     * @param packedConfig : the packed board used to verify the hash
+     * @return the record packed by Data.pack, or Data.NONE if the configuration is not found
+     */
+    public long probe(long key, long[] packedConfig) {
+        HashNode node = findNode(key, null, packedConfig);
+        return node == null ? Data.NONE : node.data.pack();
+    }
+
+    @Override
+    /**
+     * Constructor that stores a search result, updating the record of the configuration in place if there is one
+     * Only a new configuration allocates: its node, its Data and a copy of packedConfig
+     * 
+     * @param key : the Zobrist hash of the configuration
+     * @param packedConfig : the packed board, copied if a new record is created
+     * @param score : the score of the configuration
+     * @param depth : the number of levels of the game tree searched below the configuration
+     * @param bound : Data.EXACT, Data.LOWER_BOUND or Data.UPPER_BOUND
+     * @param bestMove : the best play found, or -1 if none
+     * @return returns 1 if a new record was inserted in an occupied bucket, 0 otherwise
+     */
+    public int store(long key, long[] packedConfig, int score, int depth, int bound, int bestMove) {
+        resizeIfNeeded();
+        migrateBuckets(MIGRATE_STEP);
+        HashNode node = findNode(key, null, packedConfig);
+        if (node != null) {
+            node.data.update(score, depth, bound, bestMove);
+            return 0;
+        }
+        return insert(new Data(key, packedConfig.clone(), score, depth, bound, bestMove));
+    }
+
+    /**
+     * Method that finds the node holding a configuration, looking in the old table too while a resize is in progress
+     * Exactly one of config and packedConfig is expected to be non-null
+     * 
+     * @param key : the 64-bit key of the configuration
+     * @param config : the configuration string, or null for a compact key
+     * @param packedConfig : the packed board, or null for a String key
+     * @return the node holding the configuration, or null if it is not found
+     */
+    private HashNode findNode(long key, String config, long[] packedConfig) {
+        HashNode node = findInBucket(table[hashFunction(key, size)], key, config, packedConfig);
+        if (node == null && oldTable != null) {
+            int oldIndex = hashFunction(key, oldSize);
+            if (oldIndex >= migrateIndex) { // Bucket not migrated yet
+                node = findInBucket(oldTable[oldIndex], key, config, packedConfig);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Method that finds the node holding a configuration in a single bucket
+     * 
+     * @param head : the first node of the bucket
+     * @param key : the 64-bit key of the configuration
+     * @param config : the configuration string, or null for a compact key
+     * @param packedConfig : the packed board, or null for a String key
+     * @return the node holding the configuration, or null if it is not in the bucket
+     */
+    private static HashNode findInBucket(HashNode head, long key, String config, long[] packedConfig) {
+        // Iterate over linked list at the specific index
+        while (head != null) {
+        	// If current node configuration matches requested configuration
+            if (config != null ? head.data.matches(config) : head.data.matches(key, packedConfig)) {
+                return head;
+            }
+            head = head.next; // Move to next node in the linked list if the current node doesn't match 
+        }
+        return null; // Not found
+    }
+
+    /**
+     * Method that unlinks a node from its bucket
+     * 
+     * @param node : the node to remove, or null if the configuration was not found
+     * @param key : the key of the configuration, printed if the node is null and config is null
+     * @param config : the configuration string, printed if the node is null, or null for a compact key
+     * @throws DictionaryException if node is null
+     */
+    private void removeNode(HashNode node, long key, String config) throws DictionaryException {
+        // Configuration not found, throw an exception; the message is only built then
+        if (node == null) { 
+        	System.err.println("Configuration not found: " + (config != null ? config : Long.toHexString(key)));
+            throw new DictionaryException();
+        }
+
+        // The node is in the new table unless its old bucket has not been migrated yet
+        long nodeKey = node.data.getKey();
+        if (!unlink(table, hashFunction(nodeKey, size), node)) {
+            unlink(oldTable, hashFunction(nodeKey, oldSize), node);
+        }
+        count--;
+    }
+
+    /**
+     * Method that unlinks a node from a bucket of a given table
+     * 
+     * @param buckets : the table holding the bucket
+     * @param hashIndex : the index of the bucket
+     * @param node : the node to remove
+     * @return true if the node was found in the bucket and removed
+     */
+    private static boolean unlink(HashNode[] buckets, int hashIndex, HashNode node) {
         // Retrieve the first node (head of the linked list) at the calculated hash index
-        HashNode head = table[hashIndex];
+        HashNode head = buckets[hashIndex];
         // Previous node pointer, initialized as null
         HashNode prev = null; //Track the node before the current node in the iteration
 
-        // Iterate through the linked list to find the node with the given configuration
-        // Continue looping until either the end of the list is reached (head == null) or the node with the matching configuration is found
-        while (head != null && !head.data.getConfiguration().equals(config)) {
+        // Advance until the node to remove is reached
+        while (head != null && head != node) {
             prev = head; // Move prev up to the current head node
             head = head.next; // Advance head to the next node in the list
         }
-
-        // Configuration not found, throw an exception
-        if (head == null) { 
-        	System.err.println("Configuration not found: " + config);
-            throw new DictionaryException();
-        }
+        if (head == null) return false;
 
         // If prev is not null, it means not at beginning of list
         // Remove the node from the chain
@@ -157,96 +328,100 @@ public class HashDictionary implements DictionaryADT{
             prev.next = head.next;
         } else { //If prev is null, head at beginning of list
         	//Set beginning of list to head.next, remove first node
-            table[hashIndex] = head.next;
+            buckets[hashIndex] = head.next;
         }
+        return true;
     }
 
-    @Override
     /**
-     * Constructor that returns the score stored in the record of the dictionary with key config, or -1 if config is not in the dictionary
+     * Method that describes the key of a record for error messages
      * 
-     * @param config : the configuration string whose score is to be retrieved.
-     * @return The score associated with the configuration if found, or -1 if the configuration is not found.
+     * @param record : the record to describe
+     * @return the configuration string, or the hexadecimal Zobrist hash for compact keys
      */
-    public int get(String config) {
-    	// Calculate the hash index for the given configuration to determine where to look in the hash table
-        int hashIndex = hashFunction(config);
-        // Retrieve the head of the linked list at the calculated hash index
-        HashNode head = table[hashIndex];
-
-        // Iterate over linked list at the specific index
-        while (head != null) {
-        	// If current node configuration matches requested configuration
-            if (head.data.getConfiguration().equals(config)) {
-            	// Return score associated with the configuration
-                return head.data.getScore();
-            }
-            head = head.next; // Move to next node in the linked list if the current node doesn't match 
-        }
-
-        // Return -1 if the configuration is not found in any of the nodes in the list
-        return -1; // Not found
+    private static String describe(Data record) {
+        return record.getConfiguration() != null ? record.getConfiguration() : Long.toHexString(record.getKey());
     }
 
     @Override
     /**
-     * Constructor that counts the total number of records stored in the hash table
+     * Constructor that returns the total number of records stored in the hash table
      * 
      * @return the total number of records
      */
     public int numRecords() {
-    	//Initialize the counter to keep track of the total number of records
-        int count = 0;
-        
-        //Iterate over each index (bucket) of the hash table
-        for (int i = 0; i < size; i++) {
-        	// Retrieve the head of the linked list at the current index
-            HashNode head = table[i];
-            
-            // Iterate over linked list at the current index
-            while (head != null) {
-                count++; // Increment counter for each node encountered in the list
-                head = head.next; // Move to next node in list 
-            }
-        }
-        return count; // Return the total count of records found in hash table 
+        return count;
     }
     
     /**
-     * Method that resizes if needed
+     * Method that starts a resize if needed
+     * The records are moved to the new table a few buckets at a time by migrateBuckets
      */
     private void resizeIfNeeded() {
-    	double loadFactor = (double) numRecords() / size; // Calculate the current load factor
+    	double loadFactor = (double) count / size; // Calculate the current load factor
         if (loadFactor > 0.5) { // Check if the load factor exceeds the threshold for resizing
-            int newSize = findNextPrime(size * 2); // Calculate the new size as the next prime number after doubling the current size
-            rehash(newSize); // Rehash all entries into a new table of the calculated new size
+            migrateBuckets(Integer.MAX_VALUE); // Finish a previous resize before starting a new one
+            DictionaryResizeEvent event = new DictionaryResizeEvent();
+            if (event.isEnabled()) {
+                event.begin();
+                event.oldSize = size;
+                event.records = count;
+                resize = event;
+            }
+            migrateNanos = 0;
+            oldTable = table;
+            oldSize = size;
+            migrateIndex = 0;
+            size = findNextPrime(size * 2); // Calculate the new size as the next prime number after doubling the current size
+            table = new HashNode[size];
+            if (resize != null) resize.newSize = size;
         }
     }
     
     /**
-     * Method that rehashes all entries into a new table of newSize
+     * Method that moves the records of up to maxBuckets old buckets into the new table
+     * Doubling the table halves the load factor, so MIGRATE_STEP buckets per put always finishes before the next resize
      * 
-     * @param newSize: the size of the new hash table
+     * @param maxBuckets : the maximum number of old buckets to move
      */
-    private void rehash(int newSize) {
-    	HashNode[] newTable = new HashNode[newSize]; // Create a new hash table array of the specified newSize
-        int oldSize = size; // Store the current size of the table for iteration purposes
-        size = newSize; // Update the instance variable to reflect the new size of the hash table
+    private void migrateBuckets(int maxBuckets) {
+        if (oldTable == null) return; // No resize in progress
+        long start = System.nanoTime();
+        int end = (int) Math.min((long) migrateIndex + maxBuckets, oldSize);
 
-        // Iterate through each bucket of the old table
-        for (int i = 0; i < oldSize; i++) {
-            HashNode node = table[i]; // Start with the first node in the current bucket
+        // Iterate through the next buckets of the old table
+        for (; migrateIndex < end; migrateIndex++) {
+            HashNode node = oldTable[migrateIndex]; // Start with the first node in the current bucket
+            oldTable[migrateIndex] = null;
             while (node != null) { // Iterate through the linked list in the current bucket
                 HashNode next = node.next; // Store the next node before rehashing the current one
-                int newIndex = hashFunction(node.data.getConfiguration()); // Calculate the new index for the current node
-                node.next = newTable[newIndex]; // Insert the node into the new table, maintaining the head of the list
-                newTable[newIndex] = node; // Update the head of the list in the new table to the current node
+                int newIndex = hashFunction(node.data.getKey(), size); // Calculate the new index for the current node
+                node.next = table[newIndex]; // Insert the node into the new table, maintaining the head of the list
+                table[newIndex] = node; // Update the head of the list in the new table to the current node
                 node = next; // Move to the next node in the list
             }
         }
 
-        table = newTable; // Replace the old table with the new table
+        migrateNanos += System.nanoTime() - start;
+        if (migrateIndex >= oldSize) {
+            oldTable = null; // Every record has been moved, release the old table
+            recordResize();
+        }
+    }
+
+    /**
+     * Method that reports a finished resize to the flight recorder and SearchMetrics, when they record
+     */
+    private void recordResize() {
+        if (resize != null) {
+            resize.migrationTime = migrateNanos;
+            resize.commit();
+            resize = null;
+        }
+        if (SearchMetrics.isEnabled()) {
+            SearchMetrics.get().recordResize(migrateNanos);
+        }
     }
     
 
-}
+}
\ No newline at end of file
@@ -0,0 +1,435 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * This class chooses plays by Monte Carlo tree search, for boards too large for a full-width search such as 15x15 or 19x19
+ * Each playout walks down the tree choosing plays by UCT, adds one play to the tree, then finishes the game with random
+ * plays on a copy of the board and counts the result in every node of its path.
+ * Threads share one tree (tree parallelization): a thread going through a node adds a virtual loss to it so the other
+ * threads spread over other plays, and takes it back when it counts its result. Nodes add their children one at a time,
+ * in an order decided by a random start, so a node costs a few dozen bytes until it is explored.
+ * The subtree of the plays made since the previous move is kept, so what was learned carries over to the next move.
+ * With ordering on, the squares around the play of a node are added first, and random plays prefer a square next
+ * to the previous play, which keeps playouts closer to real games on large boards.
+ *
+ * Each move is searched for the time budget, or DEFAULT_BUDGET milliseconds without one. The play returned is the one
+ * explored most, or one that wins at once, scored like the other searches: 3 or 0 if it wins at once, 1 otherwise.
+ * The nodes counted in getStats are playouts, per level of the tree they left it at, and getSearchDepth is the deepest level.
+ *
+ * @author Ivory Huo
+ */
+public class MctsSearch extends Search {
+
+	public static final long DEFAULT_BUDGET = 1000;
+	private static final double EXPLORATION = Math.sqrt(2); // UCT constant for results between 0 and 1
+	private static final int VIRTUAL_LOSS = 1;
+	private static final int NEIGHBOURHOOD = 2;               // Radius of the squares added first with ordering on
+
+	// Results of the play of a node
+	private static final int OPEN = 0;  // The game goes on
+	private static final int WIN = 1;   // The player of the node wins with it
+	private static final int DRAW = 2;  // The board is full
+
+	private final int threads;
+	private final boolean biased;
+	private final ForkJoinPool pool; // null with one thread
+	private final Worker[] workers;
+	private final int cells;
+	private final int stride;        // Step of the order children are added in, coprime with cells
+
+	private Node root;               // Tree of the last move, kept for the next one
+	private char[] rootBoard;        // Board of the root, to find the plays made since
+
+	/**
+	 * A position of the tree: the play leading to it and the results of the playouts that went through it
+	 */
+	private static final class Node {
+		static final Node[] NO_CHILDREN = new Node[0];
+		static final AtomicIntegerFieldUpdater<Node> VISITS = AtomicIntegerFieldUpdater.newUpdater(Node.class, "visits");
+		static final AtomicIntegerFieldUpdater<Node> POINTS = AtomicIntegerFieldUpdater.newUpdater(Node.class, "points");
+
+		final int move;         // Square played, row * boardSize + col, -1 for a new root
+		final char player;      // Symbol that played move
+		final int result;       // OPEN, WIN or DRAW
+		final int start;        // First square of the order children are added in
+		volatile int visits;    // Playouts through the node, plus the virtual losses of playouts going on
+		volatile int points;    // 2 per playout won by player, 1 per draw
+		volatile Node[] children = NO_CHILDREN;
+		volatile int childCount;
+		private int cursor;     // Squares of the order already considered, guarded by this
+
+		Node(int move, char player, int result, int start) {
+			this.move = move;
+			this.player = player;
+			this.result = result;
+			this.start = start;
+		}
+	}
+
+	/**
+	 * What a thread needs for its playouts: a board and scratch arrays, so playouts allocate nothing but new nodes
+	 */
+	private final class Worker {
+		final Configurations board;
+		final SplittableRandom random;
+		final SearchStats stats = new SearchStats();
+		final int[] empty;      // Empty squares during a random playout, unordered
+		final int[] position;   // Index of each square in empty
+		final int[] played;     // Squares played by the current playout, to take them back
+		final Node[] path = new Node[cells + 1];
+		int deepest;
+
+		Worker(int seed) {
+			board = new Configurations(boardSize, configs.getLengthToWin(), maxLevel);
+			board.setSymmetryReduction(false); // Only savePlay, winsAt and isFull are used
+			random = new SplittableRandom(seed);
+			empty = new int[cells];
+			position = new int[cells];
+			played = new int[cells];
+		}
+	}
+
+	/**
+	 * Constructor that creates a Monte Carlo tree search over a board
+	 *
+	 * @param configs : the board, its size and length to win
+	 * @param ordering : true to add the squares around a play first and bias random plays towards the previous play
+	 * @param timeBudget : the milliseconds each move is searched, DEFAULT_BUDGET if not positive
+	 * @param threads : the number of threads running playouts
+	 */
+	public MctsSearch(Configurations configs, boolean ordering, long timeBudget, int threads) {
+		super(configs, ordering, timeBudget);
+		this.threads = Math.max(1, threads);
+		this.biased = ordering;
+		this.pool = this.threads > 1 ? new ForkJoinPool(this.threads) : null;
+		this.cells = boardSize * boardSize;
+		int step = (int) (cells * 0.618) | 1;
+		while (gcd(step, cells) != 1) step += 2;
+		this.stride = step;
+		this.workers = new Worker[this.threads];
+		for (int i = 0; i < this.threads; i++) {
+			workers[i] = new Worker(i + 1);
+		}
+	}
+
+	private static int gcd(int a, int b) {
+		return b == 0 ? a : gcd(b, a % b);
+	}
+
+	/**
+	 * Method that runs playouts from the current board until the time budget runs out and chooses the play
+	 *
+	 * @param symbol : the symbol to play
+	 * @return the play explored most, or one winning at once
+	 */
+	@Override
+	protected PosPlay search(char symbol) {
+		stats.reset();
+		long deadline = System.nanoTime() + (timeBudget > 0 ? timeBudget : DEFAULT_BUDGET) * 1000000L;
+		char[] board = new char[cells];
+		for (int cell = 0; cell < cells; cell++) {
+			board[cell] = configs.symbolAt(cell / boardSize, cell % boardSize);
+		}
+		Node start = reuse(board, symbol);
+		root = start != null ? start : new Node(-1, opponent(symbol), OPEN, 0);
+		rootBoard = board;
+
+		for (Worker worker : workers) {
+			worker.stats.reset();
+			worker.deepest = 0;
+			for (int cell = 0; cell < cells; cell++) { // Bring the board of the worker to the current board
+				int row = cell / boardSize;
+				int col = cell % boardSize;
+				if (worker.board.symbolAt(row, col) != board[cell]) worker.board.savePlay(row, col, board[cell]);
+			}
+		}
+		if (pool == null) {
+			run(workers[0], deadline);
+		} else {
+			List<RecursiveAction> tasks = new ArrayList<>();
+			for (Worker worker : workers) {
+				tasks.add(new RecursiveAction() {
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					protected void compute() {
+						run(worker, deadline);
+					}
+				});
+			}
+			pool.invoke(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					invokeAll(tasks);
+				}
+			});
+		}
+
+		int deepest = 0;
+		for (Worker worker : workers) {
+			stats.add(worker.stats);
+			deepest = Math.max(deepest, worker.deepest);
+		}
+		searchDepth = deepest;
+		PosPlay best = choose(symbol);
+		if (progress != null) progress.iterationDone(searchDepth, best);
+		return best;
+	}
+
+	/**
+	 * Stops the threads running playouts, once the search running is done
+	 */
+	@Override
+	public void close() {
+		if (pool != null) pool.shutdown();
+	}
+
+	/**
+	 * Method that chooses the play of the root: one that wins at once, or the one explored most
+	 */
+	private PosPlay choose(char symbol) {
+		Node[] children = root.children;
+		int count = root.childCount;
+		Node best = null;
+		for (int i = 0; i < count; i++) {
+			Node child = children[i];
+			if (child.result == WIN) {
+				best = child;
+				break;
+			}
+			if (best == null || child.visits > best.visits) best = child;
+		}
+		if (best == null) return new PosPlay(configs.evalBoard(), -1, -1);
+		int score = best.result != WIN ? 1 : (symbol == COMPUTER ? 3 : 0);
+		return new PosPlay(score, best.move / boardSize, best.move % boardSize);
+	}
+
+	/**
+	 * Method that finds the node of the current board in the tree of the last move
+	 *
+	 * @param board : the current board, row-major
+	 * @param symbol : the symbol to play
+	 * @return the node, or null if the board does not follow from the board of the last move
+	 */
+	private Node reuse(char[] board, char symbol) {
+		if (root == null) return null;
+		int added = 0;
+		for (int cell = 0; cell < cells; cell++) {
+			if (rootBoard[cell] == board[cell]) continue;
+			if (rootBoard[cell] != ' ') return null; // A play was taken back
+			added++;
+		}
+		Node node = root;
+		for (int plays = 0; plays < added; plays++) {
+			Node[] children = node.children;
+			int count = node.childCount;
+			Node next = null;
+			for (int i = 0; i < count && next == null; i++) {
+				Node child = children[i];
+				if (rootBoard[child.move] == ' ' && board[child.move] == child.player) next = child;
+			}
+			if (next == null) return null;
+			node = next;
+		}
+		return node.player == opponent(symbol) && node.result == OPEN ? node : null;
+	}
+
+	/**
+	 * Method that runs playouts on the board of a worker until the deadline, or until the search is cancelled
+	 */
+	private void run(Worker worker, long deadline) {
+		do {
+			playout(worker);
+		} while (System.nanoTime() < deadline && !cancel.get());
+	}
+
+	/**
+	 * Method that runs one playout: down the tree, one new node, random plays to the end of the game, then the result
+	 * counted in every node of the path. The board of the worker is left as it was.
+	 */
+	private void playout(Worker worker) {
+		Configurations board = worker.board;
+		Node[] path = worker.path;
+		int depth = 0;
+		Node node = root;
+		path[0] = node;
+		Node.VISITS.addAndGet(node, VIRTUAL_LOSS);
+		while (node.result == OPEN) {
+			Node child = expand(node, board, worker.random);
+			boolean added = child != null;
+			if (!added) child = select(node);
+			if (child == null) break;
+			Node.VISITS.addAndGet(child, VIRTUAL_LOSS);
+			if (!added) board.savePlay(child.move / boardSize, child.move % boardSize, child.player);
+			path[++depth] = child;
+			node = child;
+			if (added) break;
+		}
+		worker.stats.countNode(depth);
+		worker.deepest = Math.max(worker.deepest, depth);
+
+		char winner;
+		if (node.result == WIN) winner = node.player;
+		else if (node.result == DRAW) winner = ' ';
+		else winner = rollout(worker, opponent(node.player), node.move);
+
+		for (int d = depth; d >= 0; d--) {
+			Node n = path[d];
+			if (d > 0) board.savePlay(n.move / boardSize, n.move % boardSize, ' ');
+			int points = winner == n.player ? 2 : (winner == ' ' ? 1 : 0);
+			if (points != 0) Node.POINTS.addAndGet(n, points);
+			if (VIRTUAL_LOSS != 1) Node.VISITS.addAndGet(n, 1 - VIRTUAL_LOSS); // The virtual loss already counted the visit
+		}
+	}
+
+	/**
+	 * Method that adds the next child of a node, playing it on the board of the worker
+	 *
+	 * @return the new child, its play made on the board, or null if every play of the node already has a child
+	 */
+	private Node expand(Node node, Configurations board, SplittableRandom random) {
+		synchronized (node) {
+			int cell = nextSquare(node, board);
+			if (cell == -1) return null;
+			char symbol = opponent(node.player);
+			int row = cell / boardSize;
+			int col = cell % boardSize;
+			board.savePlay(row, col, symbol);
+			int result = board.winsAt(row, col, symbol) ? WIN : (board.isFull() ? DRAW : OPEN);
+			Node child = new Node(cell, symbol, result, random.nextInt(cells));
+
+			Node[] children = node.children;
+			int count = node.childCount;
+			if (count == children.length) { // Grow, then publish the array before the count
+				Node[] grown = new Node[Math.max(4, count * 2)];
+				System.arraycopy(children, 0, grown, 0, count);
+				node.children = grown;
+				children = grown;
+			}
+			children[count] = child;
+			node.childCount = count + 1;
+			return child;
+		}
+	}
+
+	/**
+	 * Method that returns the next empty square in the order a node adds its children, with ordering on the squares
+	 * around the play of the node first, then every square from its random start in steps of stride
+	 *
+	 * @return the square, or -1 if none is left
+	 */
+	private int nextSquare(Node node, Configurations board) {
+		int around = (2 * NEIGHBOURHOOD + 1) * (2 * NEIGHBOURHOOD + 1);
+		boolean near = biased && node.move != -1;
+		while (node.cursor < (near ? around : 0) + cells) {
+			int k = node.cursor++;
+			int cell;
+			if (near && k < around) {
+				int row = node.move / boardSize + k / (2 * NEIGHBOURHOOD + 1) - NEIGHBOURHOOD;
+				int col = node.move % boardSize + k % (2 * NEIGHBOURHOOD + 1) - NEIGHBOURHOOD;
+				if (row < 0 || row >= boardSize || col < 0 || col >= boardSize) continue;
+				cell = row * boardSize + col;
+			} else {
+				cell = (int) ((node.start + (long) (near ? k - around : k) * stride) % cells);
+				if (near && isNear(cell, node.move)) continue; // Added in the first pass
+			}
+			if (board.squareIsEmpty(cell / boardSize, cell % boardSize)) return cell;
+		}
+		return -1;
+	}
+
+	private boolean isNear(int cell, int move) {
+		return Math.abs(cell / boardSize - move / boardSize) <= NEIGHBOURHOOD
+				&& Math.abs(cell % boardSize - move % boardSize) <= NEIGHBOURHOOD;
+	}
+
+	/**
+	 * Method that chooses the child of a node with the best upper confidence bound (UCT), or one winning at once
+	 *
+	 * @return the child, or null if the node has none
+	 */
+	private Node select(Node node) {
+		Node[] children = node.children;
+		int count = node.childCount;
+		double logVisits = Math.log(Math.max(1, node.visits));
+		Node best = null;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < count; i++) {
+			Node child = children[i];
+			if (child.result == WIN) return child;
+			int visits = Math.max(1, child.visits);
+			double value = child.points / (2.0 * visits) + EXPLORATION * Math.sqrt(logVisits / visits);
+			if (value > bestValue) {
+				best = child;
+				bestValue = value;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Method that finishes the game with random plays, then takes them back
+	 *
+	 * @param worker : the worker, its board at the position of the new node
+	 * @param symbol : the symbol to play
+	 * @param last : the previous play, or -1
+	 * @return the winner, or ' ' for a draw
+	 */
+	private char rollout(Worker worker, char symbol, int last) {
+		Configurations board = worker.board;
+		int[] empty = worker.empty;
+		int[] position = worker.position;
+		int count = 0;
+		for (int cell = 0; cell < cells; cell++) {
+			if (board.squareIsEmpty(cell / boardSize, cell % boardSize)) {
+				position[cell] = count;
+				empty[count++] = cell;
+			}
+		}
+
+		int plays = 0;
+		char winner = ' ';
+		while (count > 0) {
+			int cell = -1;
+			if (biased && last != -1) { // Try a square next to the previous play
+				int row = last / boardSize + worker.random.nextInt(3) - 1;
+				int col = last % boardSize + worker.random.nextInt(3) - 1;
+				if (row >= 0 && row < boardSize && col >= 0 && col < boardSize && board.squareIsEmpty(row, col)) {
+					cell = row * boardSize + col;
+				}
+			}
+			if (cell == -1) cell = empty[worker.random.nextInt(count)];
+
+			// Remove the square from the empty squares by moving the last one into its place
+			int moved = empty[--count];
+			empty[position[cell]] = moved;
+			position[moved] = position[cell];
+
+			int row = cell / boardSize;
+			int col = cell % boardSize;
+			board.savePlay(row, col, symbol);
+			worker.played[plays++] = cell;
+			if (board.winsAt(row, col, symbol)) {
+				winner = symbol;
+				break;
+			}
+			last = cell;
+			symbol = opponent(symbol);
+		}
+		while (plays > 0) {
+			int cell = worker.played[--plays];
+			board.savePlay(cell / boardSize, cell % boardSize, ' ');
+		}
+		return winner;
+	}
+
+	private static char opponent(char symbol) {
+		return symbol == COMPUTER ? HUMAN : COMPUTER;
+	}
+}
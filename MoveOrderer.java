@@ -0,0 +1,251 @@
+import java.util.Arrays;
+
+/**
+ * This class generates the plays tried at each level of the game tree, best candidates first
+ * Plays are ordered by: the best play stored for the configuration, then the killer plays of the level,
+ * then the history score of the square, then the distance of the square to the center of the board
+ * A play is stored as the index of its square, row * boardSize + col
+ * Best plays are recorded on the canonical image of the board, so symmetric boards share them
+ * The plays of the board a search starts from (level 0) are only ordered by the best play of the previous iteration,
+ * or else the one stored for that board by an earlier search, then by center distance. The best plays of such boards
+ * are kept in a table of their own, so their order does not depend on the rest of the tree and a ParallelSearch, whose
+ * workers keep their own tables, killers and history, tries them in the order the sequential search does
+ * 
+ * @author Ivory Huo
+ *
+ */
+public class MoveOrderer {
+	
+	private static final int NO_MOVE = -1;
+	private static final int HASH_MOVE_BITS = 16; // 65,536 entries in the best play table
+	private static final int ROOT_MOVE_BITS = 10; // 1,024 entries in the best play table of the boards searches start from
+	
+	// Sort key classes, placed above the history score and center rank
+	private static final long HASH_MOVE_CLASS = 3L << 56;
+	private static final long KILLER_CLASS = 2L << 56;
+	private static final long SECOND_KILLER_CLASS = 1L << 56;
+	
+	private int boardSize;
+	private boolean enabled; // If false plays are generated in row-major order
+	
+	// Best play of recently searched configurations, direct-mapped by canonical Zobrist key
+	private long[] hashKeys = new long[1 << HASH_MOVE_BITS];
+	private int[] hashMoves = new int[1 << HASH_MOVE_BITS];
+	
+	// Best play of the boards recent searches started from, direct-mapped by canonical Zobrist key
+	private long[] rootKeys = new long[1 << ROOT_MOVE_BITS];
+	private int[] rootMoves = new int[1 << ROOT_MOVE_BITS];
+	
+	private long rootKey;           // Canonical Zobrist hash of the board of the current search
+	private int rootMove = NO_MOVE; // Best play of the previous iteration of the current search, tried first at level 0
+	private final int[] noKillers = {NO_MOVE, NO_MOVE};
+	private final int[] noHistory;  // Zero history, for level 0
+	private int[][] killers;       // Two plays per level that recently caused a cut
+	private int[][] history;       // Per symbol ('O' then 'X') and square, sum of depth^2 over cuts caused
+	private int[] centerRank;      // Higher for squares closer to the center
+	private int[][] moves;         // Per level, the plays generated
+	private long[][] sortKeys;     // Per level, scratch space for ordering
+	
+	/**
+	 * Constructor that creates an orderer for a board
+	 * 
+	 * @param boardSize : the size of the board
+	 * @param maxLevels : the deepest level that will be searched
+	 * @param enabled : false to try the plays in row-major order like the original search
+	 */
+	public MoveOrderer(int boardSize, int maxLevels, boolean enabled) {
+		this.boardSize = boardSize;
+		this.enabled = enabled;
+		Arrays.fill(hashMoves, NO_MOVE);
+		Arrays.fill(rootMoves, NO_MOVE);
+		history = new int[2][boardSize * boardSize];
+		noHistory = new int[boardSize * boardSize];
+		centerRank = new int[boardSize * boardSize];
+		for (int row = 0; row < boardSize; row++) {
+			for (int col = 0; col < boardSize; col++) {
+				// Twice the distance, so even board sizes get integral values
+				int distance = Math.abs(2 * row - (boardSize - 1)) + Math.abs(2 * col - (boardSize - 1));
+				centerRank[row * boardSize + col] = 4 * boardSize - distance;
+			}
+		}
+		killers = new int[0][];
+		moves = new int[0][];
+		sortKeys = new long[0][];
+		ensureLevels(maxLevels);
+	}
+	
+	/**
+	 * Method that makes sure per-level arrays exist up to the given level
+	 * 
+	 * @param maxLevel : the deepest level that will be searched
+	 */
+	public void ensureLevels(int maxLevel) {
+		int levels = maxLevel + 1;
+		if (levels <= moves.length) return;
+		int old = moves.length;
+		killers = Arrays.copyOf(killers, levels);
+		moves = Arrays.copyOf(moves, levels);
+		sortKeys = Arrays.copyOf(sortKeys, levels);
+		for (int level = old; level < levels; level++) {
+			killers[level] = new int[] {NO_MOVE, NO_MOVE};
+			moves[level] = new int[boardSize * boardSize];
+			sortKeys[level] = new long[boardSize * boardSize];
+		}
+	}
+	
+	/**
+	 * Generates the empty squares of the board for a level, best candidates first
+	 * 
+	 * @param configs : the board
+	 * @param symbol : the symbol to play
+	 * @param level : the level of the game tree
+	 * @return the number of plays stored in moves(level)
+	 */
+	public int generate(Configurations configs, char symbol, int level) {
+		return generate(configs, symbol, level, NO_MOVE);
+	}
+	
+	/**
+	 * Generates the empty squares of the board for a level, best candidates first
+	 * With a candidate distance set on the board only the squares near taken ones are generated
+	 * 
+	 * @param configs : the board
+	 * @param symbol : the symbol to play
+	 * @param level : the level of the game tree
+	 * @param hint : the best play stored for the board in the dictionary, tried first, or -1 to use the one recorded here
+	 * @return the number of plays stored in moves(level)
+	 */
+	public int generate(Configurations configs, char symbol, int level, int hint) {
+		int[] list = moves[level];
+		int count = configs.candidateMoves(list);
+		if (level == 0) rootKey = configs.getCanonicalKey();
+		if (enabled && level == 0) {
+			int best = rootMove != NO_MOVE ? rootMove : lookUp(configs, rootKeys, rootMoves, ROOT_MOVE_BITS);
+			sort(list, count, sortKeys[0], best, noKillers, noHistory);
+		} else if (enabled) {
+			sort(list, count, sortKeys[level], hint != NO_MOVE ? hint : hashMove(configs), killers[level],
+					history[side(symbol)]);
+		} else if (configs.getCandidateDistance() > 0) {
+			Arrays.sort(list, 0, count); // Candidates are kept in no particular order
+		}
+		return count;
+	}
+	
+	/**
+	 * Starts ordering the plays of a new search: its board's plays are ordered by center distance until setRootMove
+	 */
+	public void newSearch() {
+		rootMove = NO_MOVE;
+	}
+	
+	/**
+	 * Records the best play of a completed iteration, tried first from the board of the search by the next iteration
+	 * 
+	 * @param move : the best play, row * boardSize + col, or -1 if none
+	 */
+	public void setRootMove(int move) {
+		rootMove = move;
+	}
+	
+	/**
+	 * Returns the plays generated for a level
+	 * 
+	 * @param level : the level of the game tree
+	 * @return the plays, valid up to the count returned by generate
+	 */
+	public int[] moves(int level) {
+		return moves[level];
+	}
+	
+	/**
+	 * Method that sorts plays by decreasing sort key with an insertion sort, fast for the short lists of a board
+	 */
+	private void sort(int[] list, int count, long[] keys, int hashMove, int[] levelKillers, int[] sideHistory) {
+		for (int i = 0; i < count; i++) {
+			int move = list[i];
+			long key;
+			if (move == hashMove) key = HASH_MOVE_CLASS;
+			else if (move == levelKillers[0]) key = KILLER_CLASS;
+			else if (move == levelKillers[1]) key = SECOND_KILLER_CLASS;
+			else key = 0;
+			key |= ((long) sideHistory[move] << 16) | centerRank[move];
+			
+			// Insert move into the sorted prefix
+			int j = i - 1;
+			while (j >= 0 && keys[j] < key) {
+				keys[j + 1] = keys[j];
+				list[j + 1] = list[j];
+				j--;
+			}
+			keys[j + 1] = key;
+			list[j + 1] = move;
+		}
+	}
+	
+	/**
+	 * Records the best play found for a configuration, tried first the next time it or a symmetric one is searched
+	 * The play of the board the current search started from goes to the table of such boards
+	 * 
+	 * @param configs : the board the play was found for
+	 * @param move : the best play
+	 */
+	public void storeBestMove(Configurations configs, int move) {
+		if (move == NO_MOVE) return;
+		long key = configs.getCanonicalKey();
+		if (key == rootKey) {
+			int index = index(key, ROOT_MOVE_BITS);
+			rootKeys[index] = key;
+			rootMoves[index] = configs.toCanonical(move);
+		} else {
+			int index = index(key, HASH_MOVE_BITS);
+			hashKeys[index] = key;
+			hashMoves[index] = configs.toCanonical(move);
+		}
+	}
+	
+	/**
+	 * Returns the best play recorded for a configuration or a symmetric one
+	 * 
+	 * @param configs : the board
+	 * @return the best play mapped onto the board, or -1 if none is recorded
+	 */
+	public int hashMove(Configurations configs) {
+		return lookUp(configs, hashKeys, hashMoves, HASH_MOVE_BITS);
+	}
+	
+	/**
+	 * Method that returns the play a direct-mapped table holds for a configuration or a symmetric one, or -1 if it holds none
+	 */
+	private static int lookUp(Configurations configs, long[] keys, int[] plays, int bits) {
+		long key = configs.getCanonicalKey();
+		int index = index(key, bits);
+		if (keys[index] != key || plays[index] == NO_MOVE) return NO_MOVE;
+		return configs.fromCanonical(plays[index]);
+	}
+	
+	/**
+	 * Records a play that caused an alpha/beta cut, as a killer of its level and in the history of its square
+	 * 
+	 * @param symbol : the symbol that played
+	 * @param level : the level of the game tree
+	 * @param move : the play
+	 * @param depth : the number of levels searched below the play
+	 */
+	public void recordCutoff(char symbol, int level, int move, int depth) {
+		int[] levelKillers = killers[level];
+		if (levelKillers[0] != move) {
+			levelKillers[1] = levelKillers[0];
+			levelKillers[0] = move;
+		}
+		int[] sideHistory = history[side(symbol)];
+		sideHistory[move] = Math.min(sideHistory[move] + depth * depth, 1 << 30); // Capped so the sort key cannot overflow
+	}
+	
+	private static int side(char symbol) {
+		return symbol == 'O' ? 0 : 1;
+	}
+	
+	private static int index(long key, int bits) {
+		return (int) (key >>> (64 - bits));
+	}
+}
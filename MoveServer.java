@@ -0,0 +1,329 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * This class serves many games at once over HTTP on one JVM, the computer answering each play of the human
+ * A session only holds its board (a Configurations), so idle sessions cost a few kilobytes. Requests are
+ * handled on virtual threads when the JVM has them (Java 21 and later) and on a bounded pool otherwise, and
+ * every search runs on a CPU executor with one thread per processor, each with its own Engine loaded with the
+ * session's board, so a burst of moves queues up instead of oversubscribing the processors.
+ *
+ * Requests, answered in plain text:
+ *   POST   /sessions                       create a game, answers its id
+ *   POST   /sessions/{id}/move?row=r&col=c  play for the human, answers "row col status" of the computer's reply
+ *                                          (row and col -1 if the game ended with the human's play)
+ *   GET    /sessions/{id}                  answers "board status", the board as read by Engine.setPosition
+ *   DELETE /sessions/{id}                  ends a game
+ *   GET    /stats                          sessions, moves served and move latency percentiles
+ * The status is one of ongoing, human-wins, computer-wins or draw. Sessions unused for 30 minutes are dropped.
+ *
+ * @author Ivory Huo
+ */
+public class MoveServer {
+
+	private static final char COMPUTER = Search.COMPUTER;
+	private static final char HUMAN = Search.HUMAN;
+	private static final long IDLE_MILLIS = 30 * 60 * 1000L;
+	private static final int LATENCY_SAMPLES = 16384; // Latest move latencies kept for the percentiles
+
+	private final int boardSize;
+	private final int lengthToWin;
+	private final int maxLevels;
+	private final ThreadLocal<Engine> engines;  // Engine of each CPU thread
+	private final List<Engine> created = new CopyOnWriteArrayList<>(); // The engines of the CPU threads, closed by stop
+	private final ExecutorService cpu;
+	private final ExecutorService requests;
+	private final ScheduledExecutorService sweeper;
+	private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
+	private final AtomicLong nextId = new AtomicLong(1);
+	private HttpServer server;
+
+	// Move latencies in microseconds, a ring buffer guarded by this
+	private final long[] latencies = new long[LATENCY_SAMPLES];
+	private long moves;
+
+	/**
+	 * A game: its board, guarded by a lock so plays of one game are made one at a time
+	 * The lock is not a monitor, so a virtual thread waiting for a search does not hold on to its carrier thread
+	 */
+	private static class Session {
+		final Configurations board;
+		final ReentrantLock lock = new ReentrantLock();
+		volatile long lastUsed = System.currentTimeMillis();
+
+		Session(Configurations board) {
+			this.board = board;
+		}
+	}
+
+	/**
+	 * Constructor for the MoveServer class
+	 *
+	 * @param boardSize : the size of the board
+	 * @param lengthToWin : the length of the sequence needed to win the game
+	 * @param maxLevels : the maximum level of the game tree that will be explored
+	 * @param engineFactory : creates the Engine of each CPU thread, for a board of this size
+	 * @param cpuThreads : the number of searches run at once
+	 */
+	public MoveServer(int boardSize, int lengthToWin, int maxLevels, Supplier<Engine> engineFactory, int cpuThreads) {
+		this.boardSize = boardSize;
+		this.lengthToWin = lengthToWin;
+		this.maxLevels = maxLevels;
+		this.engines = ThreadLocal.withInitial(() -> {
+			Engine engine = engineFactory.get();
+			created.add(engine);
+			return engine;
+		});
+		this.cpu = Executors.newFixedThreadPool(cpuThreads);
+		this.requests = requestExecutor();
+		this.sweeper = Executors.newSingleThreadScheduledExecutor();
+	}
+
+	/**
+	 * Method that creates the executor handling requests: a virtual thread per request when the JVM has them,
+	 * otherwise a bounded pool, since handlers mostly wait for the CPU executor
+	 *
+	 * @return the executor
+	 */
+	private static ExecutorService requestExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newFixedThreadPool(Math.max(64, 16 * Runtime.getRuntime().availableProcessors()));
+		}
+	}
+
+	/**
+	 * Starts serving on a port of every local address
+	 *
+	 * @param port : the TCP port, 0 for any free port
+	 * @return the port the server listens on
+	 * @throws IOException if the port cannot be bound
+	 */
+	public int start(int port) throws IOException {
+		server = HttpServer.create(new InetSocketAddress(port), 1024);
+		server.createContext("/sessions", this::handleSessions);
+		server.createContext("/stats", this::handleStats);
+		server.setExecutor(requests);
+		server.start();
+		sweeper.scheduleAtFixedRate(this::dropIdleSessions, 1, 1, TimeUnit.MINUTES);
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Stops serving, ends every game and closes the engines
+	 */
+	public void stop() {
+		if (server != null) server.stop(0);
+		sweeper.shutdownNow();
+		requests.shutdownNow();
+		cpu.shutdownNow();
+		sessions.clear();
+		created.forEach(Engine::close);
+	}
+
+	/**
+	 * Method that answers the requests on /sessions
+	 */
+	private void handleSessions(HttpExchange exchange) throws IOException {
+		try {
+			String[] parts = exchange.getRequestURI().getPath().split("/"); // "", "sessions", id, "move"
+			String method = exchange.getRequestMethod();
+			if (parts.length == 2 && method.equals("POST")) {
+				long id = nextId.getAndIncrement();
+				sessions.put(id, new Session(new Configurations(boardSize, lengthToWin, maxLevels)));
+				reply(exchange, 201, Long.toString(id));
+				return;
+			}
+			Session session = parts.length >= 3 ? sessions.get(parseId(parts[2])) : null;
+			if (session == null) {
+				reply(exchange, 404, "no such session");
+			} else if (parts.length == 3 && method.equals("GET")) {
+				reply(exchange, 200, describe(session));
+			} else if (parts.length == 3 && method.equals("DELETE")) {
+				sessions.remove(parseId(parts[2]));
+				reply(exchange, 200, "ended");
+			} else if (parts.length == 4 && parts[3].equals("move") && method.equals("POST")) {
+				Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+				int row = Integer.parseInt(query.getOrDefault("row", "-1"));
+				int col = Integer.parseInt(query.getOrDefault("col", "-1"));
+				reply(exchange, 200, move(session, row, col));
+			} else {
+				reply(exchange, 405, "unsupported request");
+			}
+		} catch (IllegalArgumentException e) {
+			reply(exchange, 400, e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			reply(exchange, 503, "server stopping");
+		} catch (ExecutionException e) {
+			reply(exchange, 500, String.valueOf(e.getCause()));
+		}
+	}
+
+	/**
+	 * Method that plays for the human and answers with the computer's play, searched on the CPU executor
+	 *
+	 * @param session : the game
+	 * @param row : the row of the human's play
+	 * @param col : the column of the human's play
+	 * @return "row col status" of the computer's play
+	 * @throws IllegalArgumentException if the play is not on an empty square of a game still going on
+	 */
+	private String move(Session session, int row, int col) throws InterruptedException, ExecutionException {
+		long start = System.nanoTime();
+		session.lastUsed = System.currentTimeMillis();
+		session.lock.lock();
+		try {
+			Configurations board = session.board;
+			if (!status(board).equals("ongoing")) throw new IllegalArgumentException("game over");
+			if (row < 0 || row >= boardSize || col < 0 || col >= boardSize || !board.squareIsEmpty(row, col)) {
+				throw new IllegalArgumentException("invalid play " + row + " " + col);
+			}
+			board.savePlay(row, col, HUMAN);
+			String result;
+			if (board.winsAt(row, col, HUMAN) || board.isFull()) {
+				result = "-1 -1 " + status(board);
+			} else {
+				Future<PosPlay> search = cpu.submit(() -> {
+					Engine engine = engines.get();
+					engine.setPosition(board);
+					return engine.bestMove(COMPUTER);
+				});
+				PosPlay pos = search.get();
+				board.savePlay(pos.getRow(), pos.getCol(), COMPUTER);
+				result = pos.getRow() + " " + pos.getCol() + " " + status(board);
+			}
+			recordLatency((System.nanoTime() - start) / 1000);
+			return result;
+		} finally {
+			session.lock.unlock();
+		}
+	}
+
+	/**
+	 * Method that tells how a game stands
+	 *
+	 * @param board : the board of the game
+	 * @return ongoing, human-wins, computer-wins or draw
+	 */
+	private static String status(Configurations board) {
+		switch (board.evalBoard()) {
+			case 3: return "computer-wins";
+			case 0: return "human-wins";
+			case 2: return "draw";
+			default: return "ongoing";
+		}
+	}
+
+	/**
+	 * Method that writes a board and its status
+	 */
+	private String describe(Session session) {
+		StringBuilder text = new StringBuilder();
+		session.lock.lock();
+		try {
+			for (int row = 0; row < boardSize; row++) {
+				if (row > 0) text.append('/');
+				for (int col = 0; col < boardSize; col++) {
+					char symbol = session.board.symbolAt(row, col);
+					text.append(symbol == ' ' ? '.' : symbol);
+				}
+			}
+			return text.append(' ').append(status(session.board)).toString();
+		} finally {
+			session.lock.unlock();
+		}
+	}
+
+	/**
+	 * Method that answers the requests on /stats
+	 */
+	private void handleStats(HttpExchange exchange) throws IOException {
+		long[] sample;
+		long served;
+		synchronized (this) {
+			served = moves;
+			sample = Arrays.copyOf(latencies, (int) Math.min(moves, LATENCY_SAMPLES));
+		}
+		Arrays.sort(sample);
+		reply(exchange, 200, String.format("sessions=%d moves=%d p50=%dus p99=%dus max=%dus", sessions.size(), served,
+				percentile(sample, 50), percentile(sample, 99), sample.length == 0 ? 0 : sample[sample.length - 1]));
+	}
+
+	/**
+	 * Method that stores the latency of a move in the ring buffer
+	 */
+	private synchronized void recordLatency(long micros) {
+		latencies[(int) (moves % LATENCY_SAMPLES)] = micros;
+		moves++;
+	}
+
+	/**
+	 * Returns a percentile of sorted samples
+	 *
+	 * @param sorted : the samples, sorted
+	 * @param percent : the percentile
+	 * @return the sample below which percent of the samples are, 0 without samples
+	 */
+	static long percentile(long[] sorted, int percent) {
+		if (sorted.length == 0) return 0;
+		int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+		return sorted[Math.max(0, index)];
+	}
+
+	/**
+	 * Method that drops the sessions nobody used for IDLE_MILLIS
+	 */
+	private void dropIdleSessions() {
+		long oldest = System.currentTimeMillis() - IDLE_MILLIS;
+		sessions.values().removeIf(session -> session.lastUsed < oldest);
+	}
+
+	private static long parseId(String id) {
+		try {
+			return Long.parseLong(id);
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private static Map<String, String> query(String query) {
+		Map<String, String> values = new HashMap<>();
+		if (query == null) return values;
+		for (String pair : query.split("&")) {
+			int equals = pair.indexOf('=');
+			if (equals > 0) values.put(pair.substring(0, equals), pair.substring(equals + 1));
+		}
+		return values;
+	}
+
+	private static void reply(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = (body + "\n").getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+}
@@ -0,0 +1,107 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * This class measures the move latency of a MoveServer under load
+ * Every client thread plays games against the server, one after the other, choosing random empty squares,
+ * and records the time each of its plays takes to be answered
+ *
+ * To run the program type: java MoveServerLoadTest [url] [clients] [seconds]
+ * The default is 64 clients playing against http://localhost:8080 for 10 seconds
+ *
+ * @author Ivory Huo
+ */
+public class MoveServerLoadTest {
+
+	public static void main(String[] args) throws Exception {
+		String url = args.length > 0 ? args[0] : "http://localhost:8080";
+		int clients = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		int size = boardSize(url);
+
+		long end = System.nanoTime() + seconds * 1000000000L;
+		List<long[]> samples = new ArrayList<>();
+		int[] counts = new int[clients];
+		CountDownLatch done = new CountDownLatch(clients);
+		for (int c = 0; c < clients; c++) {
+			int client = c;
+			long[] latencies = new long[1 << 16];
+			samples.add(latencies);
+			new Thread(() -> {
+				SplittableRandom random = new SplittableRandom(client);
+				try {
+					while (System.nanoTime() < end && counts[client] < latencies.length) {
+						String id = request("POST", url + "/sessions").trim();
+						boolean[] taken = new boolean[size * size];
+						String status = "ongoing";
+						while (status.equals("ongoing") && System.nanoTime() < end && counts[client] < latencies.length) {
+							int cell;
+							do {
+								cell = random.nextInt(size * size);
+							} while (taken[cell]);
+							taken[cell] = true;
+							long start = System.nanoTime();
+							String[] reply = request("POST", url + "/sessions/" + id + "/move?row=" + cell / size
+									+ "&col=" + cell % size).trim().split(" ");
+							latencies[counts[client]++] = (System.nanoTime() - start) / 1000;
+							if (!reply[0].equals("-1")) taken[Integer.parseInt(reply[0]) * size + Integer.parseInt(reply[1])] = true;
+							status = reply[2];
+						}
+						request("DELETE", url + "/sessions/" + id);
+					}
+				} catch (IOException e) {
+					System.err.println("client " + client + ": " + e);
+				} finally {
+					done.countDown();
+				}
+			}).start();
+		}
+		done.await();
+
+		int total = 0;
+		for (int count : counts) total += count;
+		long[] all = new long[total];
+		int n = 0;
+		for (int c = 0; c < clients; c++) {
+			System.arraycopy(samples.get(c), 0, all, n, counts[c]);
+			n += counts[c];
+		}
+		Arrays.sort(all);
+		System.out.printf("clients=%d moves=%d (%.0f/s) p50=%dus p99=%dus max=%dus%n", clients, total,
+				total / (double) seconds, MoveServer.percentile(all, 50), MoveServer.percentile(all, 99),
+				total == 0 ? 0 : all[total - 1]);
+		System.out.println("server: " + request("GET", url + "/stats").trim());
+	}
+
+	/**
+	 * Method that finds the board size of the server from the board of a new session
+	 */
+	private static int boardSize(String url) throws IOException {
+		String id = request("POST", url + "/sessions").trim();
+		String board = request("GET", url + "/sessions/" + id).split(" ")[0];
+		request("DELETE", url + "/sessions/" + id);
+		return board.indexOf('/') == -1 ? board.length() : board.indexOf('/');
+	}
+
+	/**
+	 * Method that sends a request and returns the body of the reply
+	 */
+	private static String request(String method, String address) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(address).openConnection();
+		connection.setRequestMethod(method);
+		int status = connection.getResponseCode();
+		try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+			String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+			if (status >= 400) throw new IOException(method + " " + address + ": " + status + " " + body.trim());
+			return body;
+		}
+	}
+}
@@ -0,0 +1,58 @@
+/**
+ * This class is a Search that finds the score of the board with null window searches only (MTD(f))
+ * Each search from the board only tells if its score is below a bound, so it cuts as much as alpha/beta can.
+ * Starting from a guess, the bound is moved towards the score until the score is known. Scores go from 0 to 3, so
+ * that takes at most three searches, and a search repeats little of the one before because the dictionary keeps the
+ * bounds of the boards below: a dictionary kept across moves, DictionaryType.TRANSPOSITION or OFF_HEAP, suits it best.
+ *
+ * The guess is the score of the last completed iteration, or of the last move, UNDECIDED at first.
+ * The plays chosen have the scores of alpha/beta; between plays of equal scores the move ordering may pick another.
+ *
+ * @author Ivory Huo
+ */
+public class MtdfSearch extends Search {
+
+	private static final int UNDECIDED = 1;
+
+	private int guess = UNDECIDED; // Score of the last completed iteration
+
+	/**
+	 * Constructor that creates an MTD(f) search over a board
+	 *
+	 * @param configs : the board, its size, length to win and maximum level
+	 * @param ordering : false to try plays in row-major order
+	 * @param timeBudget : if positive, the milliseconds each move is searched by iterative deepening
+	 */
+	public MtdfSearch(Configurations configs, boolean ordering, long timeBudget) {
+		super(configs, ordering, timeBudget);
+	}
+
+	/**
+	 * Searches the game tree to searchDepth with null windows until the lowest and highest possible scores meet
+	 * The play returned comes from the last search in which the symbol to play reached the bound: it has the score
+	 *
+	 * @param symbol : the symbol to play
+	 * @return the best play and its score
+	 */
+	@Override
+	protected PosPlay searchIteration(char symbol) {
+		int lower = HUMAN_WINS;
+		int upper = COMPUTER_WINS;
+		int score = Math.max(lower, Math.min(upper, guess));
+		int result = -1;
+		int best = -1; // Result of the last search the symbol to play won
+		while (lower < upper) {
+			int beta = score == lower ? score + 1 : score;
+			if (result != -1) stats.countResearch();
+			result = computerPlay(symbol, beta - 1, beta, 0, -1);
+			if (aborted) return null; // Discarded by search
+			score = scoreOf(result);
+			if (score < beta) upper = score;
+			else lower = score;
+			if ((symbol == COMPUTER) == (score >= beta)) best = result;
+		}
+		if (best == -1) best = result; // Every play loses
+		guess = score;
+		return toPosPlay(result(score, moveOf(best)));
+	}
+}
@@ -0,0 +1,211 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class is a TranspositionTable whose slots are kept outside the Java heap, in direct buffers or in a
+ * memory-mapped file. The garbage collector never scans or copies them, so its pauses do not grow with the table:
+ * a table of tens of millions of records only puts a few buffer objects on the heap.
+ * Direct buffers count against -XX:MaxDirectMemorySize, which defaults to the maximum heap size; mapped files do not.
+ *
+ * A file starts with a header naming the board size, the length to win, the number of slots, the generation of the
+ * last search and the candidate distance of the searches, followed by the slots. Its records stay in the file when the program ends, and a program opening it
+ * again starts with them, with the number of slots of the file. flush writes them to the disk, Engine.close calls it.
+ *
+ * @author Ivory Huo
+ */
+public class OffHeapTranspositionTable extends TranspositionTable {
+
+	public static final int MAGIC = 0x54545421;  // "TTT!"
+	public static final int VERSION = 1;
+	public static final int HEADER_BYTES = 4096; // A page, so the slots are page aligned
+
+	// Layout of the header
+	private static final int BOARD_SIZE_OFFSET = 8;
+	private static final int LENGTH_TO_WIN_OFFSET = 12;
+	private static final int CAPACITY_OFFSET = 16;
+	private static final int GENERATION_OFFSET = 20;
+	private static final int CANDIDATE_DISTANCE_OFFSET = 24;
+
+	private static final int CHUNK_SHIFT = 26; // 2^26 slots, 1 GB, per buffer
+	private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+	// Tables shared by every search on boards of the same size and length to win, by memory or by file
+	private static final Map<String, OffHeapTranspositionTable> SHARED = new HashMap<>();
+
+	private final ByteBuffer[] chunks;     // The slots, 2^CHUNK_SHIFT per buffer
+	private final MappedByteBuffer header; // The header of the file, null without a file
+	private final String path;
+
+	/**
+	 * Constructor that keeps the slots in direct buffers
+	 *
+	 * @param megabytes : the memory the slots may use, rounded down to a power of two number of slots
+	 */
+	public OffHeapTranspositionTable(int megabytes) {
+		super((long) megabytes * 1024 * 1024, false);
+		chunks = new ByteBuffer[chunkCount(capacity())];
+		for (int i = 0; i < chunks.length; i++) {
+			chunks[i] = ByteBuffer.allocateDirect(chunkBytes(capacity(), i)).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		header = null;
+		path = null;
+	}
+
+	/**
+	 * Constructor that keeps the slots in a memory-mapped file, created if it does not exist
+	 *
+	 * @param megabytes : the memory of a new file's slots, rounded down to a power of two number of slots
+	 * @param path : the file
+	 * @param boardSize : the size of the board searched
+	 * @param lengthToWin : the length of the sequence needed to win the game
+	 * @param candidateDistance : the candidate distance of the searches, 0 for unrestricted searches
+	 * @throws IllegalArgumentException if the file is not a table for this board size, length to win and candidate distance
+	 * @throws UncheckedIOException if the file cannot be mapped
+	 */
+	public OffHeapTranspositionTable(int megabytes, String path, int boardSize, int lengthToWin, int candidateDistance) {
+		super(existingBytes(Paths.get(path), (long) megabytes * 1024 * 1024), false);
+		this.path = path;
+		boolean created;
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			created = channel.size() == 0;
+			header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+			header.order(ByteOrder.LITTLE_ENDIAN);
+			if (created) {
+				header.putInt(0, MAGIC).putInt(4, VERSION).putInt(BOARD_SIZE_OFFSET, boardSize)
+						.putInt(LENGTH_TO_WIN_OFFSET, lengthToWin).putInt(CAPACITY_OFFSET, capacity())
+						.putInt(CANDIDATE_DISTANCE_OFFSET, candidateDistance);
+			} else {
+				check(boardSize, lengthToWin, candidateDistance);
+			}
+			chunks = new ByteBuffer[chunkCount(capacity())];
+			for (int i = 0; i < chunks.length; i++) {
+				chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + ((long) i << CHUNK_SHIFT) * BYTES_PER_SLOT,
+						chunkBytes(capacity(), i)).order(ByteOrder.LITTLE_ENDIAN);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		if (!created) { // Carry on from the last search stored in the file
+			setGeneration(header.getInt(GENERATION_OFFSET));
+			countRecords();
+		}
+	}
+
+	/**
+	 * Returns the table shared by all searches on boards of a given size, length to win and candidate distance with the
+	 * same file, or without a file the same memory, creating it if needed. A file keeps the size it was created with.
+	 *
+	 * @param boardSize : the size of the board
+	 * @param lengthToWin : the length of the sequence needed to win the game
+	 * @param candidateDistance : the candidate distance of the searches, 0 for unrestricted searches
+	 * @param megabytes : the memory of the table, only used when creating a file
+	 * @param path : the file of the table, or null to keep it in direct buffers
+	 * @return the shared table
+	 */
+	public static synchronized OffHeapTranspositionTable shared(int boardSize, int lengthToWin, int candidateDistance,
+			int megabytes, String path) {
+		String name = boardSize + "/" + lengthToWin + "/" + candidateDistance + "/"
+				+ (path == null ? megabytes + "MB" : Paths.get(path).toAbsolutePath().normalize());
+		return SHARED.computeIfAbsent(name, key -> path == null
+				? new OffHeapTranspositionTable(megabytes)
+				: new OffHeapTranspositionTable(megabytes, path, boardSize, lengthToWin, candidateDistance));
+	}
+
+	/**
+	 * Method that returns the memory of the slots of an existing file, so it is opened with its own number of slots
+	 *
+	 * @param file : the file
+	 * @param bytes : the memory for a new file
+	 * @return the memory of the slots of the file, or bytes if there is no file yet
+	 */
+	private static long existingBytes(Path file, long bytes) {
+		try {
+			if (!Files.exists(file) || Files.size(file) == 0) return bytes;
+			if (Files.size(file) < HEADER_BYTES) throw new IllegalArgumentException(file + " is not a transposition table");
+			return Files.size(file) - HEADER_BYTES;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Method that checks the header of an existing file against the boards searched
+	 */
+	private void check(int boardSize, int lengthToWin, int candidateDistance) {
+		if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(CAPACITY_OFFSET) != capacity()) {
+			throw new IllegalArgumentException(path + " is not a transposition table");
+		}
+		if (header.getInt(BOARD_SIZE_OFFSET) != boardSize || header.getInt(LENGTH_TO_WIN_OFFSET) != lengthToWin) {
+			throw new IllegalArgumentException(path + " holds " + header.getInt(BOARD_SIZE_OFFSET) + "x"
+					+ header.getInt(BOARD_SIZE_OFFSET) + " boards with length " + header.getInt(LENGTH_TO_WIN_OFFSET) + " to win");
+		}
+		if (header.getInt(CANDIDATE_DISTANCE_OFFSET) != candidateDistance) {
+			throw new IllegalArgumentException(path + " holds searches with candidate distance "
+					+ header.getInt(CANDIDATE_DISTANCE_OFFSET) + ", not " + candidateDistance);
+		}
+	}
+
+	private static int chunkCount(int capacity) {
+		return (capacity + CHUNK_MASK) >>> CHUNK_SHIFT;
+	}
+
+	private static int chunkBytes(int capacity, int chunk) {
+		return Math.min(capacity - (chunk << CHUNK_SHIFT), 1 << CHUNK_SHIFT) * BYTES_PER_SLOT;
+	}
+
+	@Override
+	public void newGeneration() {
+		super.newGeneration();
+		if (header != null) header.putInt(GENERATION_OFFSET, getGeneration());
+	}
+
+	@Override
+	protected long keyAt(int slot) {
+		return chunks[slot >>> CHUNK_SHIFT].getLong((slot & CHUNK_MASK) * BYTES_PER_SLOT);
+	}
+
+	@Override
+	protected long metaAt(int slot) {
+		return chunks[slot >>> CHUNK_SHIFT].getLong((slot & CHUNK_MASK) * BYTES_PER_SLOT + 8);
+	}
+
+	@Override
+	protected void writeSlot(int slot, long storedKey, long m) {
+		ByteBuffer chunk = chunks[slot >>> CHUNK_SHIFT];
+		int offset = (slot & CHUNK_MASK) * BYTES_PER_SLOT;
+		chunk.putLong(offset, storedKey);
+		chunk.putLong(offset + 8, m);
+	}
+
+	/**
+	 * Writes the records of a mapped table to the disk, so they survive a crash of the system as well as of the program
+	 */
+	public void flush() {
+		if (header == null) return;
+		header.force();
+		for (ByteBuffer chunk : chunks) {
+			((MappedByteBuffer) chunk).force();
+		}
+	}
+
+	/**
+	 * Returns the occupancy and replacement counters on one line, followed by where the slots are kept
+	 *
+	 * @return a description of the table
+	 */
+	@Override
+	public String toString() {
+		return super.toString() + (path == null ? " off-heap" : " file=" + path);
+	}
+}
@@ -0,0 +1,329 @@
+import java.util.Arrays;
+
+/**
+ * This class implements the Dictionary ADT using open addressing over parallel primitive arrays
+ * Keys are stored in a long[], scores in an int[] and the depth, bound and best play packed in another int[],
+ * so a record costs 16 bytes instead of a HashNode, a Data and a key object
+ * Records are identified by their 64-bit key only: the packed board passed to get and remove is not stored or verified
+ * 
+ * @author Ivory Huo
+ */
+public class OpenAddressingDictionary implements DictionaryADT {
+	
+	// Instance variables
+	private long[] keys;   // Key of the record in each slot
+	private int[] scores;  // Score of the record in each slot, -1 marks an empty slot
+	private int[] info;    // Depth (8 bits), bound (2 bits) and best play + 1 of the record in each slot
+	private int mask;      // Capacity - 1, the capacity is always a power of two
+	private int count;     // Number of records stored in the slots
+	
+	// Key 0 is a legal key (the empty board hashes to 0), so its record lives outside the arrays
+	private boolean hasZeroKey;
+	private int zeroKeyScore;
+	private int zeroKeyInfo;
+
+	/**
+	 * Constructor for the OpenAddressingDictionary class
+	 * 
+	 * @param size : the expected number of records, rounded up so the table starts at most half full
+	 */
+	public OpenAddressingDictionary(int size) {
+		int capacity = Integer.highestOneBit(Math.max(2, size * 2 - 1)) << 1;
+		allocate(capacity);
+	}
+
+	/**
+	 * Method that allocates empty slot arrays of the given capacity
+	 * 
+	 * @param capacity : the number of slots, a power of two
+	 */
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		scores = new int[capacity];
+		info = new int[capacity];
+		Arrays.fill(scores, -1);
+		mask = capacity - 1;
+	}
+
+	/**
+	 * A hash function that calculates the home slot of a key
+	 * The Zobrist keys are already uniformly distributed, the mixing step protects String keys
+	 * 
+	 * @param key : the 64-bit key of the configuration
+	 * @return the index of the first slot to probe
+	 */
+	private int slotOf(long key) {
+		key *= 0x9E3779B97F4A7C15L; // Fibonacci hashing spreads the high bits over the index
+		return (int) (key >>> 32) & mask;
+	}
+
+	/**
+	 * Method that finds the slot holding a key
+	 * 
+	 * @param key : the non-zero key to look for
+	 * @return the slot holding the key, or -1 if the key is not stored
+	 */
+	private int find(long key) {
+		int slot = slotOf(key);
+		while (scores[slot] != -1) { // Linear probing stops at the first empty slot
+			if (keys[slot] == key) return slot;
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	@Override
+	/**
+	 * Constructor that adds records to the dictionary
+	 * 
+	 * @param record The Data object to insert, its score must not be negative
+	 * @return returns 1 if the home slot of the record was already taken, 0 otherwise.
+	 * @throws DictionaryException if a record with the same key already exists in the dictionary
+	 */
+	public int put(Data record) throws DictionaryException {
+		if (record.getScore() < 0) { // Negative scores are reserved for empty slots and lookup misses
+			throw new IllegalArgumentException("Negative score: " + record.getScore());
+		}
+		long key = record.getKey();
+		if (key == 0) {
+			if (hasZeroKey) throw new DictionaryException();
+			hasZeroKey = true;
+			zeroKeyScore = record.getScore();
+			zeroKeyInfo = packInfo(record);
+			return 0;
+		}
+
+		if ((count + 1) * 2 > keys.length) { // Keep the load factor at or below 0.5
+			grow();
+		}
+
+		int slot = slotOf(key);
+		int collision = scores[slot] != -1 ? 1 : 0;
+		while (scores[slot] != -1) {
+			if (keys[slot] == key) {
+				System.err.println("Duplicate configuration: " + Long.toHexString(key));
+				throw new DictionaryException();
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		scores[slot] = record.getScore();
+		info[slot] = packInfo(record);
+		count++;
+		return collision;
+	}
+
+	/**
+	 * Method that packs the depth, bound and best play of a record into an int
+	 * 
+	 * @param record : the record
+	 * @return the packed depth, bound and best play
+	 */
+	private static int packInfo(Data record) {
+		return packInfo(record.getDepth(), record.getBound(), record.getBestMove());
+	}
+
+	private static int packInfo(int depth, int bound, int bestMove) {
+		return Math.min(depth, 255) | (bound << 8) | ((bestMove + 1) << 10);
+	}
+
+	@Override
+	/**
+	 * Constructor that removes the record with the given config from the dictionary
+	 * 
+	 * @param config : the configuration string of the record to remove
+	 * @throws DictionaryException if the configuration is not found in the dictionary
+	 */
+	public void remove(String config) throws DictionaryException {
+		remove(Data.stringKey(config), null);
+	}
+
+	@Override
+	/**
+	 * Constructor that removes the record with the given key from the dictionary
+	 * Later records of the same probe run are shifted back so no tombstones are needed
+	 * 
+	 * @param key : the Zobrist hash of the configuration to remove
+	 * @param packedConfig : ignored, records are identified by key only
+	 * @throws DictionaryException if the configuration is not found in the dictionary
+	 */
+	public void remove(long key, long[] packedConfig) throws DictionaryException {
+		if (key == 0) {
+			if (!hasZeroKey) throw new DictionaryException();
+			hasZeroKey = false;
+			return;
+		}
+
+		int slot = find(key);
+		if (slot == -1) {
+			System.err.println("Configuration not found: " + Long.toHexString(key));
+			throw new DictionaryException();
+		}
+
+		// Backward shift deletion: move up any record whose home slot is at or before the hole
+		int hole = slot;
+		int next = (hole + 1) & mask;
+		while (scores[next] != -1) {
+			int home = slotOf(keys[next]);
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				keys[hole] = keys[next];
+				scores[hole] = scores[next];
+				info[hole] = info[next];
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		scores[hole] = -1;
+		count--;
+	}
+
+	@Override
+	/**
+	 * Constructor that returns the score stored with key config, or -1 if config is not in the dictionary
+	 * 
+	 * @param config : the configuration string whose score is to be retrieved
+	 * @return the score associated with the configuration, or -1 if it is not found
+	 */
+	public int get(String config) {
+		return get(Data.stringKey(config), null);
+	}
+
+	@Override
+	/**
+	 * Constructor that returns the score stored with the given key, or -1 if it is not in the dictionary
+	 * 
+	 * @param key : the Zobrist hash of the configuration whose score is to be retrieved
+	 * @param packedConfig : ignored, records are identified by key only
+	 * @return the score associated with the configuration, or -1 if it is not found
+	 */
+	public int get(long key, long[] packedConfig) {
+		if (key == 0) {
+			return hasZeroKey ? zeroKeyScore : -1;
+		}
+		int slot = find(key);
+		return slot == -1 ? -1 : scores[slot];
+	}
+
+	@Override
+	/**
+	 * Constructor that returns the record stored with the given key, or null if it is not in the dictionary
+	 * 
+	 * @param key : the Zobrist hash of the configuration whose record is to be retrieved
+	 * @param packedConfig : ignored, records are identified by key only
+	 * @return a new Data holding the record, or null if it is not found
+	 */
+	public Data getData(long key, long[] packedConfig) {
+		int score;
+		int packed;
+		if (key == 0) {
+			if (!hasZeroKey) return null;
+			score = zeroKeyScore;
+			packed = zeroKeyInfo;
+		} else {
+			int slot = find(key);
+			if (slot == -1) return null;
+			score = scores[slot];
+			packed = info[slot];
+		}
+		return new Data(key, null, score, packed & 0xff, (packed >>> 8) & 3, (packed >>> 10) - 1);
+	}
+
+	@Override
+	/**
+	 * Constructor that returns the search result stored with the given key, without allocating
+	 * 
+	 * @param key : the Zobrist hash of the configuration whose record is to be retrieved
+	 * @param packedConfig : ignored, records are identified by key only
+	 * @return the record packed by Data.pack, or Data.NONE if it is not found
+	 */
+	public long probe(long key, long[] packedConfig) {
+		int score;
+		int packed;
+		if (key == 0) {
+			if (!hasZeroKey) return Data.NONE;
+			score = zeroKeyScore;
+			packed = zeroKeyInfo;
+		} else {
+			int slot = find(key);
+			if (slot == -1) return Data.NONE;
+			score = scores[slot];
+			packed = info[slot];
+		}
+		return Data.pack(score, packed & 0xff, (packed >>> 8) & 3, (packed >>> 10) - 1);
+	}
+
+	@Override
+	/**
+	 * Constructor that stores a search result in the slot of its key, or in a new slot, without allocating
+	 * 
+	 * @param key : the Zobrist hash of the configuration
+	 * @param packedConfig : ignored, records are identified by key only
+	 * @param score : the score of the configuration, not negative
+	 * @param depth : the number of levels of the game tree searched below the configuration
+	 * @param bound : Data.EXACT, Data.LOWER_BOUND or Data.UPPER_BOUND
+	 * @param bestMove : the best play found, or -1 if none
+	 * @return returns 1 if a new record did not get its home slot, 0 otherwise
+	 */
+	public int store(long key, long[] packedConfig, int score, int depth, int bound, int bestMove) {
+		if (score < 0) { // Negative scores are reserved for empty slots and lookup misses
+			throw new IllegalArgumentException("Negative score: " + score);
+		}
+		if (key == 0) {
+			hasZeroKey = true;
+			zeroKeyScore = score;
+			zeroKeyInfo = packInfo(depth, bound, bestMove);
+			return 0;
+		}
+
+		int slot = find(key);
+		if (slot != -1) {
+			scores[slot] = score;
+			info[slot] = packInfo(depth, bound, bestMove);
+			return 0;
+		}
+		if ((count + 1) * 2 > keys.length) { // Keep the load factor at or below 0.5
+			grow();
+		}
+		slot = slotOf(key);
+		int collision = scores[slot] != -1 ? 1 : 0;
+		while (scores[slot] != -1) {
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		scores[slot] = score;
+		info[slot] = packInfo(depth, bound, bestMove);
+		count++;
+		return collision;
+	}
+
+	@Override
+	/**
+	 * Constructor that returns the number of records stored in the dictionary
+	 * 
+	 * @return the total number of records
+	 */
+	public int numRecords() {
+		return count + (hasZeroKey ? 1 : 0);
+	}
+
+	/**
+	 * Method that doubles the capacity and reinserts every record
+	 */
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldScores = scores;
+		int[] oldInfo = info;
+		allocate(oldKeys.length * 2);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldScores[i] != -1) {
+				int slot = slotOf(oldKeys[i]);
+				while (scores[slot] != -1) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				scores[slot] = oldScores[i];
+				info[slot] = oldInfo[i];
+			}
+		}
+	}
+}
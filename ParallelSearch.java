@@ -0,0 +1,185 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * This class splits the plays of the current board over the threads of a ForkJoinPool
+ * The first play is searched alone (young brothers wait), then the others are searched in parallel,
+ * each task on its own copy of the board with a worker Search owned by its thread
+ * Finished plays share their scores: a task starts with the tightest bound the finished plays allow,
+ * so the score returned is the one the sequential search finds. Plays of the board are tried in the order the
+ * sequential search tries them, and of the plays with the best score the first in that order is returned, so with a
+ * dictionary per move the play is the sequential one too; a table kept across moves may hold different records.
+ * With DictionaryType.CONCURRENT the workers share one dictionary per move instead of keeping their own,
+ * and with DictionaryType.TRANSPOSITION or OFF_HEAP they share the table kept across moves and games
+ *
+ * @author Ivory Huo
+ *
+ */
+public class ParallelSearch extends Search {
+
+	private static final int UNKNOWN = Integer.MIN_VALUE; // Score of a play not searched yet
+
+	private ForkJoinPool pool;
+	private boolean ordering;
+	private ThreadLocal<Search> workers;
+	private int iteration; // Incremented per move so workers know to start a new dictionary
+	private DictionaryADT shared; // Dictionary of the move shared by all workers, or null
+	private volatile boolean stopped; // A worker reached the deadline, copied into aborted once the tasks are done
+
+	/**
+	 * Constructor that creates a parallel search over a board
+	 *
+	 * @param configs : the board, its size, length to win and maximum level
+	 * @param ordering : false to try plays in row-major order
+	 * @param timeBudget : if positive, the milliseconds each move is searched by iterative deepening
+	 * @param parallelism : the number of threads searching
+	 */
+	public ParallelSearch(Configurations configs, boolean ordering, long timeBudget, int parallelism) {
+		super(configs, ordering, timeBudget);
+		this.ordering = ordering;
+		this.pool = new ForkJoinPool(parallelism);
+		this.workers = ThreadLocal.withInitial(() -> new Search(configs.copy(), this.ordering, 0));
+	}
+
+	/**
+	 * Chooses the best play for a symbol, searching the plays of each iteration in parallel
+	 *
+	 * @param symbol : the symbol to play
+	 * @return the best play and its score
+	 */
+	@Override
+	public PosPlay searchMove(char symbol) {
+		iteration++;
+		return super.searchMove(symbol);
+	}
+
+	/**
+	 * Searches every play of the board in parallel, to searchDepth
+	 *
+	 * @param symbol : the symbol to play
+	 * @return the best play and its score
+	 */
+	@Override
+	protected PosPlay searchIteration(char symbol) {
+		stopped = false;
+		boolean sharing = persistentTable() || configs.getDictionaryType() == DictionaryType.CONCURRENT;
+		shared = sharing ? configurations : null;
+		int count = orderer.generate(configs, symbol, 0);
+		int[] moves = orderer.moves(0).clone();
+		AtomicIntegerArray scores = new AtomicIntegerArray(count);
+		for (int i = 0; i < count; i++) {
+			scores.set(i, UNKNOWN);
+		}
+
+		if (count > 0) {
+			pool.invoke(new PlayTask(symbol, moves, scores, 0)); // Eldest brother first
+		}
+		if (count > 1 && !stopped) {
+			List<PlayTask> tasks = new ArrayList<>();
+			for (int i = 1; i < count; i++) {
+				tasks.add(new PlayTask(symbol, moves, scores, i));
+			}
+			pool.invoke(new RecursiveAction() {
+				@Override
+				protected void compute() {
+					invokeAll(tasks);
+				}
+			});
+		}
+
+		aborted = stopped;
+
+		// Same choice as the sequential search: the first play with the best score
+		int value = symbol == COMPUTER ? -1 : 4;
+		int best = -1;
+		for (int i = 0; i < count; i++) {
+			int score = scores.get(i);
+			if ((symbol == COMPUTER && score > value) || (symbol == HUMAN && score < value)) {
+				value = score;
+				best = i;
+			}
+		}
+		if (best == -1) return new PosPlay(value, -1, -1);
+		orderer.storeBestMove(configs, moves[best]);
+		return new PosPlay(value, moves[best] / boardSize, moves[best] % boardSize);
+	}
+
+	/**
+	 * Stops the threads of the pool, once the search running is done
+	 */
+	@Override
+	public void close() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Method that returns the alpha/beta window a play can be searched with, given the plays already finished
+	 * A play loses to an earlier play with an equal score and wins against a later one,
+	 * so a finished earlier play bounds it by its score and a finished later play by its score -/+ 1
+	 *
+	 * @param symbol : the symbol to play
+	 * @param scores : the scores of the finished plays, UNKNOWN for the others
+	 * @param index : the position of the play in the order plays are chosen
+	 * @return the bound: alpha when the computer plays, beta when the human plays
+	 */
+	private static int bound(char symbol, AtomicIntegerArray scores, int index) {
+		int bound = symbol == COMPUTER ? -1 : 4;
+		for (int i = 0; i < scores.length(); i++) {
+			int score = scores.get(i);
+			if (i == index || score == UNKNOWN) continue;
+			if (symbol == COMPUTER) {
+				bound = Math.max(bound, i < index ? score : score - 1);
+			} else {
+				bound = Math.min(bound, i < index ? score : score + 1);
+			}
+		}
+		return bound;
+	}
+
+	/**
+	 * Task that scores one play of the current board with the worker Search of its thread
+	 */
+	private class PlayTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final char symbol;
+		private final int[] moves;
+		private final AtomicIntegerArray scores;
+		private final int index;
+
+		PlayTask(char symbol, int[] moves, AtomicIntegerArray scores, int index) {
+			this.symbol = symbol;
+			this.moves = moves;
+			this.scores = scores;
+			this.index = index;
+		}
+
+		@Override
+		protected void compute() {
+			if (stopped) return;
+			Search worker = workers.get();
+			worker.prepareWorker(configs.copy(), searchDepth, deadline, iteration, shared, cancel);
+
+			int alpha = -1;
+			int beta = 4;
+			if (symbol == COMPUTER) alpha = bound(symbol, scores, index);
+			else beta = bound(symbol, scores, index);
+
+			char opponent = symbol == COMPUTER ? HUMAN : COMPUTER;
+			int row = moves[index] / boardSize;
+			int column = moves[index] % boardSize;
+			int score = worker.evaluatePlay(row, column, symbol, opponent, alpha, beta, 0);
+
+			synchronized (stats) {
+				stats.add(worker.getStats());
+			}
+			if (worker.aborted) {
+				stopped = true;
+			} else {
+				scores.set(index, score);
+			}
+		}
+	}
+}
@@ -1,66 +1,151 @@
-import java.awt.Container;
-import java.awt.GridLayout;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.IOException;
 
-import javax.swing.Icon;
-import javax.swing.ImageIcon;
-import javax.swing.JButton;
 import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
 
 public class Play extends JFrame {
      private static final long serialVersionUID = 1L;
      private final char COMPUTER = 'O';
      private final char HUMAN    = 'X';
 
-     private JButton [][] gameDisplay;/* Game board */
-     private Configurations configs;       
+     private BoardPanel gameDisplay;/* Game board */
+     private Engine engine;         /* Game tree search for the computer */
+     private AsyncEngine searcher;  /* Runs the searches of engine off the event thread */
+     private Configurations board;  /* Board shown in the window */
      private int board_size;    /* Size of game board */
      private int max_level;     /* Maximum level of the game tree that
                                    will be explored                    */
-     private HashDictionary configurations;
+     private boolean print_stats;   /* Print search counters after each move */
 
 
     /* Constructor. Creates a panel to represent the game board and destroys
        the panel when its window is closed.                                 */
     public Play(int size, int to_win, int depth)
     {
-        Container c = getContentPane();
-	c.setLayout(new GridLayout(size,size));  
-	gameDisplay = new JButton[size][size];
-	Icon emptySquare = new ImageIcon("empty.gif");
-	ClickHandler handler = new ClickHandler(size);
-
-	/* Board is represented as a grid of clickable buttons */
-        for(int i = 0; i < size; i++)
-           for(int j = 0; j < size; j++) {
-               gameDisplay[i][j] = new JButton("",emptySquare);
-	       gameDisplay[i][j].setEnabled(true);
-               add(gameDisplay[i][j]);
-               gameDisplay[i][j].addActionListener(handler);
-           }
-               
+        this(size, to_win, depth, DictionaryType.CHAINED, 64, null, true, true, false, 0, 1, SearchType.ALPHA_BETA);
+    }
+
+    /* Constructor. Same as above, dict_type selects the dictionary
+       implementation used to store configurations, table_mb the memory of a
+       transposition table, tablebase, if not null, a file written by
+       TablebaseSolver holding the scores of solved positions, ordering enables move
+       ordering, symmetry lets symmetric boards share dictionary records,
+       print_stats prints search counters after each move and
+       time_budget, if positive, is the time in milliseconds each move is
+       searched by iterative deepening, with depth as the deepest level,
+       threads, if greater than 1, splits the search over that many
+       threads, and search_type chooses between the alpha/beta search, its
+       PVS and MTD(f) variants and Monte Carlo tree search.              */
+    public Play(int size, int to_win, int depth, DictionaryType dict_type,
+                int table_mb, String tablebase, boolean ordering, boolean symmetry, boolean print_stats,
+                long time_budget,
+                int threads, SearchType search_type)
+    {
+	/* Board is drawn by one component, which finds the square clicked */
+	gameDisplay = new BoardPanel(size,"empty.gif","human.gif","computer.gif");
+	gameDisplay.setClickListener(new ClickHandler(size));
+	getContentPane().add(gameDisplay);
+
 	board_size = size;
 	max_level = depth;
-    configs = new Configurations(size,to_win,depth); /* User code needed to play */
+    engine = new Engine(size,to_win,depth,dict_type,table_mb,tablebase,ordering,symmetry,
+                        time_budget,threads,search_type); /* User code needed to play */
+    /* Saves a table kept in a file and releases the search threads on exit */
+    Runtime.getRuntime().addShutdownHook(new Thread(engine::close));
+    searcher = new AsyncEngine(engine);
+    board = new Configurations(size,to_win,depth);
+    this.print_stats = print_stats;
     }
 
     
-    /* To run the program type: java Play size length depth where 
+    /* To run the program type: java Play size length depth [options] where 
        size is the size of the board, length is the length of the X-shape of +shape
        needed to win the game, and depth is the number of levels of the game tree
-       to be explored.                   */
-    public static void main(String [] args)
+       to be explored. Options:
+         --dict=chained|open|concurrent|transposition|offheap
+                               dictionary implementation (default chained),
+                               a transposition table is kept across moves,
+                               offheap keeps it outside the Java heap
+         --table-mb=n          memory of the transposition table (default 64)
+         --table-file=file     keep the table in a memory-mapped file, so it
+                               survives restarts (selects --dict=offheap)
+         --tablebase=file      answer solved positions from a file written
+                               by TablebaseSolver
+         --ordering=on|off     move ordering (default on)
+         --symmetry=on|off     share records between rotated and reflected
+                               boards (default on)
+         --stats               print search counters after each move
+         --metrics             total the search counters of every move in
+                               the MBean tictactoe:type=SearchMetrics, read
+                               by jconsole; every move is also recorded as a
+                               tictactoe.Search event by -XX:StartFlightRecording
+         --time=ms             search each move by iterative deepening for
+                               ms milliseconds, up to depth levels
+         --threads=n           split the search over n threads (default 1)
+         --neighbourhood=d     only try plays within d rows and columns of
+                               a taken square (default 0, every empty
+                               square), for large sparse boards
+         --search=alphabeta|pvs|mtdf|mcts
+                               search algorithm (default alphabeta): pvs
+                               adds null and aspiration windows, mtdf
+                               searches with null windows only, both
+                               choosing plays of the same scores with
+                               fewer nodes; mcts runs Monte Carlo tree
+                               search for --time ms per move (default
+                               1000) on large boards
+         --serve[=port]        serve games over HTTP instead of opening a
+                               window (default port 8080), see MoveServer */
+    public static void main(String [] args) throws IOException
     {
+	DictionaryType dict_type = DictionaryType.CHAINED;
+	boolean ordering = true;
+	boolean symmetry = true;
+	boolean print_stats = false;
+	long time_budget = 0;
+	int threads = 1;
+	int neighbourhood = 0;
+	SearchType search_type = SearchType.ALPHA_BETA;
+	int table_mb = 64;
+	String tablebase = null;
+	String table_file = null;
+	int serve_port = -1;
 
         /* Check that the number of arguments is the correct one */
-	if (args.length != 3) {
-	    System.out.println
-		("Usage: java Play board-size shape-length depth");
-	    System.exit(0);
+	if (args.length < 3) usage();
+	for (int i = 3; i < args.length; i++) {
+	    if (args[i].startsWith("--dict="))
+		dict_type = DictionaryType.parse(args[i].substring("--dict=".length()));
+	    else if (args[i].equals("--ordering=on") || args[i].equals("--ordering=off"))
+		ordering = args[i].endsWith("on");
+	    else if (args[i].equals("--symmetry=on") || args[i].equals("--symmetry=off"))
+		symmetry = args[i].endsWith("on");
+	    else if (args[i].equals("--stats"))
+		print_stats = true;
+	    else if (args[i].equals("--metrics"))
+		SearchMetrics.register();
+	    else if (args[i].startsWith("--time="))
+		time_budget = Long.parseLong(args[i].substring("--time=".length()));
+	    else if (args[i].startsWith("--table-mb="))
+		table_mb = Integer.parseInt(args[i].substring("--table-mb=".length()));
+	    else if (args[i].startsWith("--table-file="))
+		table_file = args[i].substring("--table-file=".length());
+	    else if (args[i].startsWith("--tablebase="))
+		tablebase = args[i].substring("--tablebase=".length());
+	    else if (args[i].startsWith("--threads="))
+		threads = Integer.parseInt(args[i].substring("--threads=".length()));
+	    else if (args[i].startsWith("--neighbourhood="))
+		neighbourhood = Integer.parseInt(args[i].substring("--neighbourhood=".length()));
+	    else if (args[i].startsWith("--search="))
+		search_type = SearchType.parse(args[i].substring("--search=".length()));
+	    else if (args[i].equals("--serve"))
+		serve_port = 8080;
+	    else if (args[i].startsWith("--serve="))
+		serve_port = Integer.parseInt(args[i].substring("--serve=".length()));
+	    else usage();
 	}
+	if (table_file != null) dict_type = DictionaryType.OFF_HEAP;
 //	String[] args2 = {"5", "5", "4"};
 //	args = args2;
         /* Size of the game board */
@@ -71,10 +156,36 @@ public class Play extends JFrame {
 	int adjacent_to_win = Integer.parseInt(args[1]);
 	int depth = Integer.parseInt(args[2]);
 
+	if (serve_port >= 0) {
+	    /* Each search thread of the server gets an engine with these settings,
+	       searches are split over threads processors each */
+	    DictionaryType type = dict_type;
+	    int mb = table_mb, split = threads, distance = neighbourhood;
+	    String solved = tablebase, mapped = table_file;
+	    boolean order = ordering, symmetric = symmetry;
+	    long budget = time_budget;
+	    SearchType algorithm = search_type;
+	    MoveServer server = new MoveServer(size, adjacent_to_win, depth,
+		() -> {
+		    Engine engine = new Engine(size, adjacent_to_win, depth, type, mb, solved, order, symmetric, budget, split, algorithm);
+		    engine.setCandidateDistance(distance);
+		    engine.setTableFile(mapped);
+		    return engine;
+		},
+		Math.max(1, Runtime.getRuntime().availableProcessors() / threads));
+	    System.out.println("Serving games on port " + server.start(serve_port));
+	    /* Closes the engines, and the threads they split searches over, on exit */
+	    Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+	    return;
+	}
+
 	/* Create the game board and start the game */
-        JFrame f = new Play(size,adjacent_to_win,depth);
+        Play f = new Play(size,adjacent_to_win,depth,dict_type,table_mb,tablebase,ordering,symmetry,print_stats,
+                          time_budget,threads,search_type);
+        f.engine.setCandidateDistance(neighbourhood);
+        f.engine.setTableFile(table_file);
 
-        f.setSize(size*100,size*100);
+        f.pack();
         f.setVisible(true);
 
         f.addWindowListener(new WindowAdapter( ) {
@@ -84,13 +195,26 @@ public class Play extends JFrame {
         });
     }
 
+    /* Print the command line syntax and terminate */
+    private static void usage()
+    {
+	System.out.println
+	    ("Usage: java Play board-size shape-length depth"
+	     + " [--dict=chained|open|concurrent|transposition|offheap] [--table-mb=n] [--table-file=file]"
+	     + " [--tablebase=file]"
+	     + " [--ordering=on|off] [--symmetry=on|off] [--stats] [--metrics] [--time=ms] [--serve[=port]]"
+	     + " [--threads=n] [--neighbourhood=d] [--search=alphabeta|pvs|mtdf|mcts]");
+	System.exit(0);
+    }
+
 
     /* Panel to represent the game board. It contaias methods for detecting
        the play selected by the human player.                           */
 
-    private class ClickHandler implements ActionListener {
+    private class ClickHandler implements BoardPanel.ClickListener {
 	private int board_size;
 	private boolean game_ended = false;
+	private boolean thinking = false; /* The computer is choosing its play */
 
 	/* Constructor. Save board size in instance variable */
 	public ClickHandler(int size) {
@@ -99,116 +223,58 @@ public class Play extends JFrame {
 
 	/* When the user has selected a play, this method is invoked to 
 	   process the selected play */
-        public void actionPerformed(ActionEvent event) {
-            if(event.getSource() instanceof JButton) { /* Some position of the board was selected */
-		int row = -1, col = -1;
-		PosPlay pos;
-
+        public void squareClicked(int row, int col) {
 		if (game_ended) System.exit(0);
-		/* Find out which position was selected by the player */
-                for (int i = 0; i < board_size; i++) {
-                    for (int j = 0; j < board_size; j++)
-                        if(event.getSource() == gameDisplay[i][j]) {
-			    row = i;
-			    col = j;
-			    break;
-			}
-		    if (row != -1) break;
+		if (thinking) {
+		    System.out.println("Wait for the computer to play");
+		    return;
 		}
 
-		if (configs.squareIsEmpty(row,col)) {
+		if (board.squareIsEmpty(row,col)) {
 		    /* Valid play, mark it on the board */
-                    gameDisplay[row][col].setIcon(
-                         new ImageIcon("human.gif"));
-		    gameDisplay[row][col].paint(gameDisplay[row][col].getGraphics());
+                    gameDisplay.setSymbol(row,col,HUMAN);
 
-		    configs.savePlay(row,col,HUMAN);
-		    if (configs.wins(HUMAN)) endGame("Human wins"); 
+		    board.savePlay(row,col,HUMAN);
+		    if (board.winsAt(row,col,HUMAN)) endGame("Human wins"); 
 		    else {
-			if (configs.isDraw()) endGame("Game is a draw"); 
+			if (board.isDraw()) endGame("Game is a draw"); 
 			else {
-			    pos = computerPlay(COMPUTER,-1,4,0);
- 			    configs.savePlay(pos.getRow(),pos.getCol(),COMPUTER);
-			    gameDisplay[pos.getRow()][pos.getCol()].setIcon(
-						new ImageIcon("computer.gif"));
-			    if (configs.wins(COMPUTER)) endGame("Computer wins");
-			    else if (configs.isDraw()) endGame("Game is a draw");
+			    /* Search in the background, the window stays responsive */
+			    thinking = true;
+			    setTitle("Thinking");
+			    searcher.search(board, COMPUTER, new AsyncEngine.Listener() {
+				public void iterationDone(int depth, PosPlay best) {
+				    SwingUtilities.invokeLater(() -> setTitle("Thinking: depth " + depth
+					+ ", best " + best.getRow() + " " + best.getCol()));
+				}
+
+				public void searchDone(PosPlay best, String summary) {
+				    if (print_stats) System.out.println(summary);
+				    SwingUtilities.invokeLater(() -> computerPlays(best));
+				}
+			    });
 			}
 		    }
 		}
 		else System.out.println("Invalid play");
-
-            }
-        }
-
-
-	/* Explore the game tree and choose the best move for the computer */
-	private PosPlay computerPlay(char symbol, int highest_score, 
-                                     int lowest_score, int level) {
-
-	char opponent;           // Opponent's symbol
-        PosPlay reply;           // Opponent's best reply
- 
-        int bestRow = -1;
-        int bestColumn = -1;     // Position of best play
-
-        int value;
-	int lookupVal;
-
-	if (level == 0)   /* Create new hash table */
-	    configurations = configs.createDictionary();    
-
-        if( symbol == COMPUTER ) {
-            opponent = HUMAN; value = -1;
-        }
-        else {
-            opponent = COMPUTER; value = 4;
         }
 
-        for(int row = 0; row < board_size; row++)
-            for(int column = 0; column < board_size; column++) {
-                if(configs.squareIsEmpty(row,column)) {     // Empty position
-                    configs.savePlay(row,column,symbol);   // Store next play
-		    if (configs.wins(symbol)||configs.isDraw()||(level >= max_level))
-                        // Game ending situation or max number of levels reached 
-			reply = new PosPlay(configs.evalBoard(),row,column);
-		    else {
-			lookupVal = configs.repeatedConfiguration(configurations);
-			if (lookupVal != -1) 
-			    reply = new PosPlay(lookupVal,row,column);
-			else {
-			    reply = computerPlay(opponent, highest_score, 
-                                         lowest_score, level + 1);
-			    if (configs.repeatedConfiguration(configurations) == -1)
-			        configs.addConfiguration(configurations,reply.getScore());
-			}
-		    }
-		    configs.savePlay(row,column,' ');
-                    
-		    if((symbol == COMPUTER && reply.getScore() > value) ||
-		       (symbol == HUMAN && reply.getScore() < value)) {
-			 bestRow = row; 
-			 bestColumn = column;
-			 value = reply.getScore();
-
-			 /* Alpha/beta cut */
-			 if (symbol == COMPUTER && value > highest_score) 
-			     highest_score = value;
-			 else if (symbol == HUMAN && value < lowest_score) 
-			     lowest_score = value;
-
-			 if (highest_score >= lowest_score) 
-			     return new PosPlay(value, bestRow, bestColumn);
-		    }
-		    
-		}
-	    }
-         return new PosPlay(value, bestRow, bestColumn);
-        }
+	/* Marks the play chosen by the computer, then ponders the replies
+	   of the human while waiting for them                             */
+	private void computerPlays(PosPlay pos) {
+	    thinking = false;
+	    setTitle("");
+	    board.savePlay(pos.getRow(),pos.getCol(),COMPUTER);
+	    gameDisplay.setSymbol(pos.getRow(),pos.getCol(),COMPUTER);
+	    if (board.winsAt(pos.getRow(),pos.getCol(),COMPUTER)) endGame("Computer wins");
+	    else if (board.isDraw()) endGame("Game is a draw");
+	    else searcher.ponder(board, HUMAN, pos.getRow(), pos.getCol());
+	}
 
 
 	/* Prompt the user for a key to terminate the game */
 	private void endGame(String mssg) {
+	    searcher.cancel();
 	    System.out.println(mssg);
 	    System.out.println("");
 	    System.out.println("Click on board to terminate game");
@@ -0,0 +1,73 @@
+/**
+ * This class is a Search that tries to prove the first play of each board is the best instead of scoring every play
+ * Once the first play is scored, the other plays are searched with a null window just around the score to beat,
+ * which only tells if they are better and cuts much more. A play found better is searched again with the full window.
+ * With good move ordering the first play is usually the best, so few plays are searched twice.
+ *
+ * Each iteration starts with an aspiration window around the score of the last completed iteration, or of the last
+ * move: between that score - 1 and + 1, so only that score is exact. If the search fails outside the window it is
+ * searched again on the side it failed, unless its score is already the lowest or highest there is.
+ * The plays chosen have the scores of alpha/beta; between plays of equal scores the move ordering may pick another.
+ *
+ * @author Ivory Huo
+ */
+public class PrincipalVariationSearch extends Search {
+
+	private int lastScore = -1; // Score of the last completed iteration, -1 before the first
+
+	/**
+	 * Constructor that creates a principal variation search over a board
+	 *
+	 * @param configs : the board, its size, length to win and maximum level
+	 * @param ordering : false to try plays in row-major order
+	 * @param timeBudget : if positive, the milliseconds each move is searched by iterative deepening
+	 */
+	public PrincipalVariationSearch(Configurations configs, boolean ordering, long timeBudget) {
+		super(configs, ordering, timeBudget);
+	}
+
+	/**
+	 * Searches the game tree once, to searchDepth, within the aspiration window and again if it fails outside
+	 *
+	 * @param symbol : the symbol to play
+	 * @return the best play and its score
+	 */
+	@Override
+	protected PosPlay searchIteration(char symbol) {
+		int alpha = lastScore == -1 ? -1 : lastScore - 1;
+		int beta = lastScore == -1 ? 4 : lastScore + 1;
+		int result = computerPlay(symbol, alpha, beta, 0, -1);
+		int score = scoreOf(result);
+		if (!aborted && score <= alpha && score > HUMAN_WINS) { // At most score
+			stats.countResearch();
+			result = computerPlay(symbol, -1, score + 1, 0, -1);
+		} else if (!aborted && score >= beta && score < COMPUTER_WINS) { // At least score
+			stats.countResearch();
+			result = computerPlay(symbol, score - 1, 4, 0, -1);
+		}
+		if (!aborted) lastScore = scoreOf(result);
+		return toPosPlay(result);
+	}
+
+	/**
+	 * Method that scores a play: the first play of a board with its window, the others with a null window first
+	 * A board already searched with a null window is searched as alpha/beta does
+	 */
+	@Override
+	protected int scorePlay(int index, int row, int column, char symbol, char opponent, int highestScore, int lowestScore,
+			int level) {
+		if (index == 0 || lowestScore - highestScore <= 1) {
+			return evaluatePlay(row, column, symbol, opponent, highestScore, lowestScore, level);
+		}
+		int score;
+		if (symbol == COMPUTER) {
+			score = evaluatePlay(row, column, symbol, opponent, highestScore, highestScore + 1, level);
+			if (aborted || score <= highestScore || score >= lowestScore) return score; // Not better, or a cut
+		} else {
+			score = evaluatePlay(row, column, symbol, opponent, lowestScore - 1, lowestScore, level);
+			if (aborted || score >= lowestScore || score <= highestScore) return score;
+		}
+		stats.countResearch();
+		return evaluatePlay(row, column, symbol, opponent, highestScore, lowestScore, level);
+	}
+}
@@ -0,0 +1,389 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This class explores the game tree of a board to choose the best play, using minimax with alpha/beta cuts
+ * The computer ('O') maximizes the score of evalBoard and the human ('X') minimizes it
+ * Below the root nothing is allocated per node: plays are made and taken back on the board, results are packed in an
+ * int and dictionary records in a long, so only a dictionary linking a new node per configuration allocates
+ *
+ * @author Ivory Huo
+ *
+ */
+public class Search {
+
+	public static final char COMPUTER = 'O';
+	public static final char HUMAN = 'X';
+	protected static final int HUMAN_WINS = 0;    // Lowest score of evalBoard
+	protected static final int COMPUTER_WINS = 3; // Highest score of evalBoard
+	private static final AtomicBoolean NOT_CANCELLED = new AtomicBoolean();
+
+	// Instance variables
+	protected Configurations configs;
+	protected int boardSize;
+	protected int maxLevel;          // Deepest level searched
+	protected long timeBudget;       // Milliseconds per move for iterative deepening, 0 for a fixed depth search
+	protected MoveOrderer orderer;   // Order in which plays are tried
+	protected SearchStats stats = new SearchStats();
+	protected DictionaryADT configurations; // Scores of the configurations seen by the current move
+
+	// State of the current search
+	protected int searchDepth;       // Deepest level of the current iteration
+	protected long deadline;         // System.nanoTime() at which the search stops, 0 for no limit
+	protected boolean aborted;       // Deadline reached, results of the iteration unusable
+	private int workerIteration;     // Move of a ParallelSearch this worker's dictionary belongs to
+	protected AtomicBoolean cancel = NOT_CANCELLED; // Set by another thread to stop the current search like a deadline
+	protected Progress progress;     // Told of every completed iteration of the current search, or null
+
+	/**
+	 * Receives the play chosen by each completed iteration of a search
+	 */
+	public interface Progress {
+		void iterationDone(int depth, PosPlay best);
+	}
+
+	/**
+	 * Constructor that creates a search over a board
+	 *
+	 * @param configs : the board, its size, length to win and maximum level
+	 * @param ordering : false to try plays in row-major order
+	 * @param timeBudget : if positive, the milliseconds each move is searched by iterative deepening
+	 */
+	public Search(Configurations configs, boolean ordering, long timeBudget) {
+		this.configs = configs;
+		this.boardSize = configs.getBoardSize();
+		this.maxLevel = configs.getMaxLevels();
+		this.timeBudget = timeBudget;
+		this.orderer = new MoveOrderer(boardSize, maxLevel, ordering);
+	}
+
+	/**
+	 * Chooses the best play for a symbol
+	 * Without a time budget the game tree is searched to maxLevel. Otherwise it is searched to levels 0, 1, 2, ...
+	 * until the budget runs out, and the play of the last completed level is returned.
+	 * The iterations share a dictionary and the move ordering: a record is only reused as a score when it was searched
+	 * at least as deep as needed and its bound answers the alpha/beta window, otherwise its best play is tried first.
+	 * With DictionaryType.TRANSPOSITION or OFF_HEAP every move and game also shares the table kept for boards like this one,
+	 * or the one given by Configurations.setTranspositionTable.
+	 * Each move is reported as a SearchEvent to a flight recording, and to SearchMetrics once it is registered.
+	 *
+	 * @param symbol : the symbol to play
+	 * @return the best play and its score, null if the search was cancelled before choosing one
+	 */
+	public PosPlay searchMove(char symbol) {
+		SearchEvent event = new SearchEvent();
+		event.begin();
+		long start = System.nanoTime();
+		PosPlay best = search(symbol);
+		if (best == null) return null;
+		if (event.shouldCommit()) {
+			event.symbol = symbol;
+			event.depth = searchDepth;
+			event.score = best.getScore();
+			event.nodes = stats.getNodes();
+			event.nodesPerLevel = Arrays.toString(stats.getNodesPerLevel());
+			event.dictionaryHits = stats.getDictionaryHits();
+			event.dictionaryMisses = stats.getDictionaryMisses();
+			event.cutoffs = stats.getCutoffs();
+			event.firstMoveCutoffs = stats.getFirstMoveCutoffs();
+			event.stores = stats.getStores();
+			event.collisions = stats.getCollisions();
+			event.commit();
+		}
+		if (SearchMetrics.isEnabled()) {
+			SearchMetrics.get().recordSearch(stats, searchDepth, System.nanoTime() - start);
+		}
+		return best;
+	}
+
+	/**
+	 * Chooses the best play for a symbol, as searchMove does, and can be stopped from another thread
+	 * A cancelled search returns the play of its last completed iteration, or null if none completed
+	 *
+	 * @param symbol : the symbol to play
+	 * @param cancel : set to true by another thread to stop the search
+	 * @param progress : told of the play of every completed iteration, or null
+	 * @return the best play and its score, null if the search was cancelled before choosing one
+	 */
+	public PosPlay searchMove(char symbol, AtomicBoolean cancel, Progress progress) {
+		this.cancel = cancel;
+		this.progress = progress;
+		try {
+			return searchMove(symbol);
+		} finally {
+			this.cancel = NOT_CANCELLED;
+			this.progress = null;
+		}
+	}
+
+	/**
+	 * Method that chooses the best play for a symbol, as described in searchMove
+	 * Subclasses replacing the algorithm override this method, so searchMove still reports every move
+	 *
+	 * @param symbol : the symbol to play
+	 * @return the best play and its score
+	 */
+	protected PosPlay search(char symbol) {
+		stats.reset();
+		orderer.newSearch();
+		aborted = false;
+		if (persistentTable()) {
+			configs.transpositionTable().newGeneration();
+		}
+		configs.setSymbolToPlay(symbol);
+		configurations = configs.createDictionary(); // Create new hash table, or reuse the shared one
+		if (timeBudget <= 0) {
+			searchDepth = maxLevel;
+			deadline = 0;
+			PosPlay best = searchIteration(symbol);
+			if (aborted) return null; // Cancelled
+			if (progress != null) progress.iterationDone(searchDepth, best);
+			return best;
+		}
+
+		long end = System.nanoTime() + timeBudget * 1000000L;
+		PosPlay best = null;
+		int completed = 0;
+		for (int depth = 0; depth <= maxLevel; depth++) {
+			searchDepth = depth;
+			aborted = false;
+			deadline = (best == null) ? 0 : end; // First level always completes, unless cancelled
+			PosPlay pos = searchIteration(symbol);
+			if (aborted) break;
+			best = pos;
+			completed = depth;
+			orderer.setRootMove(pos.getRow() == -1 ? -1 : pos.getRow() * boardSize + pos.getCol());
+			if (progress != null) progress.iterationDone(depth, pos);
+			if (pos.getScore() == COMPUTER_WINS || pos.getScore() == HUMAN_WINS) break; // Game decided
+			if (System.nanoTime() > end) break;
+		}
+		searchDepth = completed;
+		return best;
+	}
+
+	/**
+	 * Searches the game tree once, to searchDepth
+	 *
+	 * @param symbol : the symbol to play
+	 * @return the best play and its score
+	 */
+	protected PosPlay searchIteration(char symbol) {
+		return toPosPlay(computerPlay(symbol, -1, 4, 0, -1));
+	}
+
+	/**
+	 * Packs a score and a play in an int, the result of computerPlay
+	 *
+	 * @param score : the score, from -1 to 4
+	 * @param move : the play, row * boardSize + col, or -1 if none
+	 * @return the packed result
+	 */
+	protected static int result(int score, int move) {
+		return ((move + 1) << 8) | (score + 1);
+	}
+
+	protected static int scoreOf(int result) {
+		return (result & 0xff) - 1;
+	}
+
+	protected static int moveOf(int result) {
+		return (result >> 8) - 1;
+	}
+
+	/**
+	 * Method that unpacks the result of computerPlay
+	 *
+	 * @param result : the packed score and play
+	 * @return the play and its score, row and column -1 if there is no play
+	 */
+	protected PosPlay toPosPlay(int result) {
+		int move = moveOf(result);
+		if (move == -1) return new PosPlay(scoreOf(result), -1, -1);
+		return new PosPlay(scoreOf(result), move / boardSize, move % boardSize);
+	}
+
+	/**
+	 * Checks if the search keeps its dictionary across iterations, moves and games
+	 *
+	 * @return true with DictionaryType.TRANSPOSITION or OFF_HEAP
+	 */
+	protected boolean persistentTable() {
+		return configs.getDictionaryType().isTranspositionTable();
+	}
+
+	/**
+	 * Explores the game tree and chooses the best play
+	 *
+	 * @param symbol : the symbol to play
+	 * @param highestScore : the best score the computer is already guaranteed (alpha)
+	 * @param lowestScore : the best score the human is already guaranteed (beta)
+	 * @param level : the level of the game tree, 0 for the current board
+	 * @param hint : the best play stored in the dictionary for the board, or -1
+	 * @return the best play and its score, packed by result
+	 */
+	protected int computerPlay(char symbol, int highestScore, int lowestScore, int level, int hint) {
+		char opponent = symbol == COMPUTER ? HUMAN : COMPUTER; // Opponent's symbol
+		int value = symbol == COMPUTER ? -1 : 4;
+		int bestMove = -1; // Position of best play, row * boardSize + col
+
+		int count = orderer.generate(configs, symbol, level, hint);
+		int[] moves = orderer.moves(level);
+
+		for (int i = 0; i < count; i++) { // Empty positions, most promising first
+			int row = moves[i] / boardSize;
+			int column = moves[i] % boardSize;
+			int score = scorePlay(i, row, column, symbol, opponent, highestScore, lowestScore, level);
+			if (aborted) return result(value, bestMove);
+
+			if ((symbol == COMPUTER && score > value) || (symbol == HUMAN && score < value)) {
+				bestMove = moves[i];
+				value = score;
+
+				// Alpha/beta cut
+				if (symbol == COMPUTER && value > highestScore) {
+					highestScore = value;
+				} else if (symbol == HUMAN && value < lowestScore) {
+					lowestScore = value;
+				}
+
+				if (highestScore >= lowestScore) {
+					stats.countCutoff(i);
+					orderer.recordCutoff(symbol, level, moves[i], searchDepth - level + 1);
+					orderer.storeBestMove(configs, moves[i]);
+					return result(value, bestMove);
+				}
+			}
+		}
+		if (bestMove != -1) orderer.storeBestMove(configs, bestMove);
+		return result(value, bestMove);
+	}
+
+	/**
+	 * Method that scores the play tried in a given position of the order of a board
+	 * Alpha/beta searches every play with the window of the board, subclasses may search some with another window first
+	 *
+	 * @param index : the position of the play in the order plays are tried, 0 for the first
+	 * @param row : the row of the play
+	 * @param column : the column of the play
+	 * @param symbol : the symbol to play
+	 * @param opponent : the symbol of the other player
+	 * @param highestScore : alpha
+	 * @param lowestScore : beta
+	 * @param level : the level of the game tree the play is made from
+	 * @return the score of the play, meaningless if the search was aborted
+	 */
+	protected int scorePlay(int index, int row, int column, char symbol, char opponent, int highestScore, int lowestScore,
+			int level) {
+		return evaluatePlay(row, column, symbol, opponent, highestScore, lowestScore, level);
+	}
+
+	/**
+	 * Scores one play: stores it, evaluates or searches the resulting board, then takes it back
+	 *
+	 * @param row : the row of the play
+	 * @param column : the column of the play
+	 * @param symbol : the symbol to play
+	 * @param opponent : the symbol of the other player
+	 * @param highestScore : alpha
+	 * @param lowestScore : beta
+	 * @param level : the level of the game tree the play is made from
+	 * @return the score of the play, meaningless if the search was aborted
+	 */
+	protected int evaluatePlay(int row, int column, char symbol, char opponent, int highestScore, int lowestScore, int level) {
+		int score;
+		stats.countNode(level);
+		if ((stats.getNodes() & 1023) == 0 && ((deadline != 0 && System.nanoTime() > deadline) || cancel.get())) {
+			aborted = true;
+			return 0;
+		}
+
+		configs.savePlay(row, column, symbol); // Store next play
+		if (configs.winsAt(row, column, symbol) || configs.isFull() || level >= searchDepth) {
+			// Game ending situation or max number of levels reached,
+			// only lines through the new play can have been completed
+			score = configs.evalBoard(row, column, symbol);
+		} else {
+			int depth = searchDepth - level; // Levels searched below the new board
+			long entry = configs.probeConfiguration(configurations);
+			if (Data.answers(entry, depth, highestScore, lowestScore)) {
+				stats.countDictionaryHit();
+				score = Data.scoreOf(entry);
+			} else {
+				stats.countDictionaryMiss();
+				int hint = (entry == Data.NONE || Data.bestMoveOf(entry) == -1) ? -1 : configs.fromCanonical(Data.bestMoveOf(entry));
+				int best = computerPlay(opponent, highestScore, lowestScore, level + 1, hint);
+				score = scoreOf(best);
+				if (!aborted) {
+					// A score outside the alpha/beta window is only a bound on the score of the board
+					int bound = Data.EXACT;
+					if (score <= highestScore) bound = Data.UPPER_BOUND;
+					else if (score >= lowestScore) bound = Data.LOWER_BOUND;
+					stats.countStore(configs.storeConfiguration(configurations, score, depth, bound, moveOf(best)));
+				}
+			}
+		}
+		configs.savePlay(row, column, ' ');
+		return score;
+	}
+
+	/**
+	 * Prepares this search to score plays for an iteration of a ParallelSearch
+	 * The dictionary is kept between plays and iterations of the same move and replaced for a new one, unless a shared one is given
+	 *
+	 * @param board : a copy of the board of the ParallelSearch
+	 * @param depth : the deepest level of the iteration
+	 * @param deadline : System.nanoTime() at which the search stops, 0 for no limit
+	 * @param iteration : the number of the move searched by the ParallelSearch
+	 * @param shared : a dictionary shared by all workers of the iteration, or null for a dictionary of this worker
+	 * @param cancel : the cancellation flag of the ParallelSearch
+	 */
+	void prepareWorker(Configurations board, int depth, long deadline, int iteration, DictionaryADT shared,
+			AtomicBoolean cancel) {
+		this.configs = board;
+		this.searchDepth = depth;
+		this.deadline = deadline;
+		this.cancel = cancel;
+		this.aborted = false;
+		stats.reset();
+		if (shared != null) {
+			configurations = shared;
+		} else if (configurations == null || iteration != workerIteration) {
+			configurations = board.createDictionary();
+			workerIteration = iteration;
+		}
+	}
+
+	/**
+	 * Releases the threads of the search, which cannot search afterwards
+	 * A sequential search holds no threads, so this does nothing; searches splitting moves over threads override it
+	 */
+	public void close() {
+	}
+
+	/**
+	 * Returns the dictionary of the last search
+	 *
+	 * @return the dictionary, or null before the first search
+	 */
+	public DictionaryADT getDictionary() {
+		return configurations;
+	}
+
+	/**
+	 * Returns the counters of the last search
+	 *
+	 * @return the search counters
+	 */
+	public SearchStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Returns the deepest level completed by the last search
+	 *
+	 * @return the depth of the last completed iteration
+	 */
+	public int getSearchDepth() {
+		return searchDepth;
+	}
+}
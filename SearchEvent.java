@@ -0,0 +1,54 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event recorded for every move searched, with the counters of the search
+ * It costs nothing unless a flight recording enables it, e.g. java -XX:StartFlightRecording ... Play
+ *
+ * @author Ivory Huo
+ */
+@Name("tictactoe.Search")
+@Label("Search")
+@Category("Tic-Tac-Toe")
+@Description("A move searched by the game tree search")
+public class SearchEvent extends jdk.jfr.Event {
+
+	@Label("Symbol")
+	public char symbol;
+
+	@Label("Depth")
+	@Description("Deepest level completed")
+	public int depth;
+
+	@Label("Score")
+	public int score;
+
+	@Label("Nodes")
+	public long nodes;
+
+	@Label("Nodes Per Level")
+	@Description("Plays tried from level 0, 1, 2, ... separated by commas")
+	public String nodesPerLevel;
+
+	@Label("Dictionary Hits")
+	public long dictionaryHits;
+
+	@Label("Dictionary Misses")
+	public long dictionaryMisses;
+
+	@Label("Cutoffs")
+	public long cutoffs;
+
+	@Label("First Move Cutoffs")
+	public long firstMoveCutoffs;
+
+	@Label("Stores")
+	@Description("Records put in the dictionary")
+	public long stores;
+
+	@Label("Collisions")
+	@Description("Stores that landed in an occupied bucket")
+	public long collisions;
+}
@@ -0,0 +1,203 @@
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * This class totals the counters of every search and every HashDictionary resize, and exposes them as an MBean
+ * Nothing is recorded until register() is called, so searches only pay for a volatile read per move when it is not
+ *
+ * @author Ivory Huo
+ */
+public class SearchMetrics implements SearchMetricsMBean {
+
+	public static final String OBJECT_NAME = "tictactoe:type=SearchMetrics";
+
+	private static final SearchMetrics INSTANCE = new SearchMetrics();
+	private static volatile boolean enabled;
+
+	// Totals, guarded by this
+	private long searches;
+	private long nodes;
+	private long[] nodesPerLevel = new long[0];
+	private long dictionaryHits;
+	private long dictionaryMisses;
+	private long cutoffs;
+	private long firstMoveCutoffs;
+	private long stores;
+	private long collisions;
+	private long resizes;
+	private long resizeNanos;
+	private long lastSearchNanos;
+	private int lastSearchDepth;
+
+	private SearchMetrics() {
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server under OBJECT_NAME and starts recording
+	 *
+	 * @return the metrics
+	 * @throws IllegalStateException if the MBean cannot be registered
+	 */
+	public static synchronized SearchMetrics register() {
+		if (!enabled) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+			} catch (JMException e) {
+				throw new IllegalStateException("Cannot register " + OBJECT_NAME, e);
+			}
+			enabled = true;
+		}
+		return INSTANCE;
+	}
+
+	/**
+	 * Checks if searches and resizes are recorded
+	 *
+	 * @return true once register() was called
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Returns the metrics, recording or not
+	 *
+	 * @return the metrics
+	 */
+	public static SearchMetrics get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Adds the counters of a finished search
+	 *
+	 * @param stats : the counters of the search
+	 * @param depth : the deepest level completed
+	 * @param nanos : the time the search took
+	 */
+	public synchronized void recordSearch(SearchStats stats, int depth, long nanos) {
+		searches++;
+		nodes += stats.getNodes();
+		long[] levels = stats.getNodesPerLevel();
+		if (levels.length > nodesPerLevel.length) {
+			nodesPerLevel = Arrays.copyOf(nodesPerLevel, levels.length);
+		}
+		for (int level = 0; level < levels.length; level++) {
+			nodesPerLevel[level] += levels[level];
+		}
+		dictionaryHits += stats.getDictionaryHits();
+		dictionaryMisses += stats.getDictionaryMisses();
+		cutoffs += stats.getCutoffs();
+		firstMoveCutoffs += stats.getFirstMoveCutoffs();
+		stores += stats.getStores();
+		collisions += stats.getCollisions();
+		lastSearchNanos = nanos;
+		lastSearchDepth = depth;
+	}
+
+	/**
+	 * Adds a finished HashDictionary resize
+	 *
+	 * @param nanos : the time spent migrating its records
+	 */
+	public synchronized void recordResize(long nanos) {
+		resizes++;
+		resizeNanos += nanos;
+	}
+
+	@Override
+	public synchronized long getSearches() {
+		return searches;
+	}
+
+	@Override
+	public synchronized long getNodes() {
+		return nodes;
+	}
+
+	@Override
+	public synchronized long[] getNodesPerLevel() {
+		return nodesPerLevel.clone();
+	}
+
+	@Override
+	public synchronized long getDictionaryHits() {
+		return dictionaryHits;
+	}
+
+	@Override
+	public synchronized long getDictionaryMisses() {
+		return dictionaryMisses;
+	}
+
+	@Override
+	public synchronized double getDictionaryHitRate() {
+		long lookups = dictionaryHits + dictionaryMisses;
+		return lookups == 0 ? 0 : (double) dictionaryHits / lookups;
+	}
+
+	@Override
+	public synchronized long getCutoffs() {
+		return cutoffs;
+	}
+
+	@Override
+	public synchronized double getFirstMoveCutoffRate() {
+		return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs;
+	}
+
+	@Override
+	public synchronized long getStores() {
+		return stores;
+	}
+
+	@Override
+	public synchronized long getCollisions() {
+		return collisions;
+	}
+
+	@Override
+	public synchronized double getCollisionRate() {
+		return stores == 0 ? 0 : (double) collisions / stores;
+	}
+
+	@Override
+	public synchronized long getResizes() {
+		return resizes;
+	}
+
+	@Override
+	public synchronized double getResizeMillis() {
+		return resizeNanos / 1e6;
+	}
+
+	@Override
+	public synchronized double getLastSearchMillis() {
+		return lastSearchNanos / 1e6;
+	}
+
+	@Override
+	public synchronized int getLastSearchDepth() {
+		return lastSearchDepth;
+	}
+
+	@Override
+	public synchronized void reset() {
+		searches = 0;
+		nodes = 0;
+		nodesPerLevel = new long[0];
+		dictionaryHits = 0;
+		dictionaryMisses = 0;
+		cutoffs = 0;
+		firstMoveCutoffs = 0;
+		stores = 0;
+		collisions = 0;
+		resizes = 0;
+		resizeNanos = 0;
+		lastSearchNanos = 0;
+		lastSearchDepth = 0;
+	}
+}
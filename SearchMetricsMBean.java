@@ -0,0 +1,39 @@
+/**
+ * Management interface of SearchMetrics, the totals of every search since the program started or the last reset
+ *
+ * @author Ivory Huo
+ */
+public interface SearchMetricsMBean {
+
+	long getSearches();
+
+	long getNodes();
+
+	long[] getNodesPerLevel();
+
+	long getDictionaryHits();
+
+	long getDictionaryMisses();
+
+	double getDictionaryHitRate();
+
+	long getCutoffs();
+
+	double getFirstMoveCutoffRate();
+
+	long getStores();
+
+	long getCollisions();
+
+	double getCollisionRate();
+
+	long getResizes();
+
+	double getResizeMillis();
+
+	double getLastSearchMillis();
+
+	int getLastSearchDepth();
+
+	void reset();
+}
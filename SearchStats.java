@@ -0,0 +1,167 @@
+import java.util.Arrays;
+
+/**
+ * This class counts what the game tree search does during a move
+ * 
+ * @author Ivory Huo
+ *
+ */
+public class SearchStats {
+	
+	// Counters, reset before every move
+	private long nodes;             // Plays tried by computerPlay
+	private long cutoffs;           // Alpha/beta cuts
+	private long firstMoveCutoffs;  // Alpha/beta cuts caused by the first play tried
+	private long dictionaryHits;    // Configurations whose stored score answered the lookup
+	private long dictionaryMisses;  // Configurations searched because no record answered the lookup
+	private long stores;            // Records put in the dictionary
+	private long collisions;        // Records put in an occupied bucket, as told by put
+	private long researches;        // Plays and boards searched again after a narrower window failed
+	private long[] levelNodes = new long[8]; // Plays tried from each level
+	
+	/**
+	 * Resets every counter to 0
+	 */
+	public void reset() {
+		nodes = 0;
+		cutoffs = 0;
+		firstMoveCutoffs = 0;
+		dictionaryHits = 0;
+		dictionaryMisses = 0;
+		stores = 0;
+		collisions = 0;
+		researches = 0;
+		Arrays.fill(levelNodes, 0);
+	}
+	
+	/**
+	 * Counts a play tried by the search
+	 * 
+	 * @param level : the level of the game tree the play is made from
+	 */
+	public void countNode(int level) {
+		nodes++;
+		if (level >= levelNodes.length) levelNodes = Arrays.copyOf(levelNodes, level * 2);
+		levelNodes[level]++;
+	}
+	
+	/**
+	 * Counts an alpha/beta cut
+	 * 
+	 * @param moveIndex : the position of the play that caused the cut in the order it was tried, 0 for the first
+	 */
+	public void countCutoff(int moveIndex) {
+		cutoffs++;
+		if (moveIndex == 0) firstMoveCutoffs++;
+	}
+	
+	/**
+	 * Counts a configuration found in the dictionary
+	 */
+	public void countDictionaryHit() {
+		dictionaryHits++;
+	}
+	
+	/**
+	 * Counts a configuration searched because the dictionary held no record answering the lookup
+	 */
+	public void countDictionaryMiss() {
+		dictionaryMisses++;
+	}
+	
+	/**
+	 * Counts a record put in the dictionary
+	 * 
+	 * @param collision : the result of put, 1 if the record went into an occupied bucket
+	 */
+	public void countStore(int collision) {
+		stores++;
+		collisions += collision;
+	}
+	
+	/**
+	 * Counts a play or a board searched again because the narrower window it was searched with did not give its score
+	 */
+	public void countResearch() {
+		researches++;
+	}
+	
+	/**
+	 * Adds the counters of another search, used to total the counters of parallel workers
+	 * 
+	 * @param other : the counters to add
+	 */
+	public void add(SearchStats other) {
+		nodes += other.nodes;
+		cutoffs += other.cutoffs;
+		firstMoveCutoffs += other.firstMoveCutoffs;
+		dictionaryHits += other.dictionaryHits;
+		dictionaryMisses += other.dictionaryMisses;
+		stores += other.stores;
+		collisions += other.collisions;
+		researches += other.researches;
+		if (other.levelNodes.length > levelNodes.length) levelNodes = Arrays.copyOf(levelNodes, other.levelNodes.length);
+		for (int level = 0; level < other.levelNodes.length; level++) {
+			levelNodes[level] += other.levelNodes[level];
+		}
+	}
+	
+	public long getNodes() {
+		return nodes;
+	}
+	
+	public long getCutoffs() {
+		return cutoffs;
+	}
+	
+	public long getFirstMoveCutoffs() {
+		return firstMoveCutoffs;
+	}
+	
+	public long getDictionaryHits() {
+		return dictionaryHits;
+	}
+	
+	public long getDictionaryMisses() {
+		return dictionaryMisses;
+	}
+	
+	public long getStores() {
+		return stores;
+	}
+	
+	public long getCollisions() {
+		return collisions;
+	}
+	
+	public long getResearches() {
+		return researches;
+	}
+	
+	/**
+	 * Returns the plays tried from each level
+	 * 
+	 * @return the counts from level 0 to the deepest level reached
+	 */
+	public long[] getNodesPerLevel() {
+		int levels = levelNodes.length;
+		while (levels > 0 && levelNodes[levels - 1] == 0) levels--;
+		return Arrays.copyOf(levelNodes, levels);
+	}
+	
+	/**
+	 * Returns the counters on one line
+	 * The first-move cutoff rate measures the move ordering: the closer to 100%, the more alpha/beta can prune
+	 * Re-searches are only listed for the searches that make them, PrincipalVariationSearch and MtdfSearch
+	 * 
+	 * @return a description of the counters
+	 */
+	@Override
+	public String toString() {
+		double firstRate = cutoffs == 0 ? 0 : 100.0 * firstMoveCutoffs / cutoffs;
+		double collisionRate = stores == 0 ? 0 : 100.0 * collisions / stores;
+		return String.format("nodes=%d cutoffs=%d first-move-cutoffs=%.1f%% dictionary-hits=%d dictionary-misses=%d"
+				+ " collisions=%.1f%%", nodes, cutoffs, firstRate, dictionaryHits, dictionaryMisses, collisionRate)
+				+ (researches == 0 ? "" : " researches=" + researches);
+	}
+}
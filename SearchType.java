@@ -0,0 +1,37 @@
+/**
+ * This enum lists the algorithms an Engine can choose its plays with
+ * 
+ * @author Ivory Huo
+ *
+ */
+public enum SearchType {
+	ALPHA_BETA,  // Search (or ParallelSearch with several threads): minimax with alpha/beta cuts, exact up to its depth
+	PVS,         // PrincipalVariationSearch: null windows after the first play and aspiration windows, same scores
+	MTDF,        // MtdfSearch: MTD(f), null window searches from a guess, same scores
+	MCTS;        // MctsSearch: Monte Carlo tree search for a time budget, for boards too large to search full width
+	
+	/**
+	 * Parses a search type from a command line value such as "alphabeta", "pvs", "mtdf" or "mcts"
+	 * 
+	 * @param name : the name of the search type, case insensitive
+	 * @return the matching search type
+	 * @throws IllegalArgumentException if name does not match any search type
+	 */
+	public static SearchType parse(String name) {
+		switch (name.toLowerCase()) {
+			case "alphabeta":
+			case "alpha_beta":
+			case "minimax":
+				return ALPHA_BETA;
+			case "pvs":
+				return PVS;
+			case "mtdf":
+			case "mtd(f)":
+				return MTDF;
+			case "mcts":
+				return MCTS;
+			default:
+				throw new IllegalArgumentException("Unknown search type: " + name);
+		}
+	}
+}
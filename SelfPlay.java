@@ -0,0 +1,431 @@
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class plays the engine against itself to compare two settings, without a user interface
+ * Games are played by a pool of workers, each with an Engine per player, and every game on its own Configurations.
+ * Player A plays 'X' (first) in even games and 'O' in odd games, and the first plays of each game are random so games
+ * differ. The random plays of a game only depend on the seed and the game number, so two settings are compared on the
+ * same openings; the engines' choices can still vary between runs, since their move ordering learns from earlier games.
+ *
+ * One CSV line per game is written on the standard output, in game order, as games finish:
+ *   game,a_symbol,result,plies,a_ms,b_ms
+ * where result is A, B or draw and a_ms, b_ms the time each player spent searching. A summary is printed on the
+ * standard error every 10 seconds and at the end: games per second, the wins, draws and losses of A with 95% intervals,
+ * the score of A with its Elo difference, and the distribution of the time each player took per move.
+ * With dict=transposition or offheap each player has its own table, shared by its engines on every worker, so a player
+ * never reads records stored by the other player's settings. The players cannot use the same table-file.
+ *
+ * To run the program type: java SelfPlay size length games [--a=settings] [--b=settings] [options] > games.csv
+ * Settings are comma-separated name=value pairs: depth, dict, table-mb, table-file, ordering, symmetry, time, threads,
+ * neighbourhood, tablebase and search, with the meaning and defaults of the options of Play (depth defaults to 4), e.g. --a=depth=5,dict=open
+ * Options are --workers=n (default one per processor), --random-plies=n (default 2) and --seed=n (default 1).
+ *
+ * @author Ivory Huo
+ */
+public class SelfPlay {
+
+	private static final int READ_AHEAD = 4;          // Games submitted ahead per worker
+	private static final long PROGRESS_NANOS = 10000000000L;
+	private static final double Z95 = 1.959964;       // Normal quantile of a 95% interval
+
+	/**
+	 * The settings of one player
+	 */
+	static class Player {
+		int depth = 4;
+		DictionaryType dictionaryType = DictionaryType.CHAINED;
+		int tableMegabytes = 64;
+		String tablebase;
+		String tableFile;
+		boolean ordering = true;
+		boolean symmetry = true;
+		long timeBudget;
+		int threads = 1;
+		SearchType searchType = SearchType.ALPHA_BETA;
+		int neighbourhood;
+		private TranspositionTable table; // Table of the engines of this player, created with the first of them
+
+		/**
+		 * Constructor that reads settings written as comma-separated name=value pairs
+		 *
+		 * @param settings : the settings, empty for the defaults
+		 * @throws IllegalArgumentException if a setting is unknown
+		 */
+		Player(String settings) {
+			for (String setting : settings.split(",")) {
+				if (setting.isEmpty()) continue;
+				int equals = setting.indexOf('=');
+				String name = equals == -1 ? setting : setting.substring(0, equals);
+				String value = equals == -1 ? "" : setting.substring(equals + 1);
+				switch (name) {
+					case "depth": depth = Integer.parseInt(value); break;
+					case "dict": dictionaryType = DictionaryType.parse(value); break;
+					case "table-mb": tableMegabytes = Integer.parseInt(value); break;
+					case "tablebase": tablebase = value; break;
+					case "table-file": tableFile = value; dictionaryType = DictionaryType.OFF_HEAP; break;
+					case "ordering": ordering = value.equals("on"); break;
+					case "symmetry": symmetry = value.equals("on"); break;
+					case "time": timeBudget = Long.parseLong(value); break;
+					case "threads": threads = Integer.parseInt(value); break;
+					case "neighbourhood": neighbourhood = Integer.parseInt(value); break;
+					case "search": searchType = SearchType.parse(value); break;
+					default: throw new IllegalArgumentException("Unknown setting " + name);
+				}
+			}
+		}
+
+		Engine createEngine(int size, int lengthToWin) {
+			Engine engine = new Engine(size, lengthToWin, depth, dictionaryType, tableMegabytes, tablebase, ordering,
+					symmetry, timeBudget, threads, searchType);
+			engine.setCandidateDistance(neighbourhood);
+			if (dictionaryType.isTranspositionTable()) engine.setTranspositionTable(table(size, lengthToWin));
+			return engine;
+		}
+
+		/**
+		 * Method that returns the table of this player, shared by its engines on every worker but not with the other player
+		 */
+		private synchronized TranspositionTable table(int size, int lengthToWin) {
+			if (table == null) {
+				if (dictionaryType == DictionaryType.TRANSPOSITION) table = new TranspositionTable(tableMegabytes);
+				else if (tableFile == null) table = new OffHeapTranspositionTable(tableMegabytes);
+				else table = new OffHeapTranspositionTable(tableMegabytes, tableFile, size, lengthToWin, neighbourhood);
+			}
+			return table;
+		}
+
+		@Override
+		public String toString() {
+			if (searchType == SearchType.MCTS) {
+				return "search=mcts,time=" + (timeBudget > 0 ? timeBudget : MctsSearch.DEFAULT_BUDGET)
+						+ ",ordering=" + (ordering ? "on" : "off") + (threads > 1 ? ",threads=" + threads : "");
+			}
+			return (searchType == SearchType.ALPHA_BETA ? "" : "search=" + searchType.name().toLowerCase() + ",")
+					+ "depth=" + depth + ",dict=" + dictionaryType.name().toLowerCase() + ",ordering=" + (ordering ? "on" : "off")
+					+ ",symmetry=" + (symmetry ? "on" : "off") + (timeBudget > 0 ? ",time=" + timeBudget : "")
+					+ (threads > 1 ? ",threads=" + threads : "") + (neighbourhood > 0 ? ",neighbourhood=" + neighbourhood : "")
+					+ (tablebase != null ? ",tablebase=" + tablebase : "");
+		}
+	}
+
+	/**
+	 * The result of one game
+	 */
+	static class Game {
+		final int number;
+		final char aSymbol;
+		char winner = ' ';   // ' ' for a draw
+		int plies;
+		long aNanos;
+		long bNanos;
+		long[] aMoves;       // Microseconds per move of each player
+		long[] bMoves;
+		int aCount;
+		int bCount;
+
+		Game(int number, int cells) {
+			this.number = number;
+			this.aSymbol = number % 2 == 0 ? Search.HUMAN : Search.COMPUTER;
+			this.aMoves = new long[(cells + 1) / 2];
+			this.bMoves = new long[(cells + 1) / 2];
+		}
+
+		/**
+		 * Returns the result of the game for player A
+		 *
+		 * @return A, B or draw
+		 */
+		String result() {
+			if (winner == ' ') return "draw";
+			return winner == aSymbol ? "A" : "B";
+		}
+	}
+
+	/**
+	 * Latency histogram with 32 buckets per power of two, so percentiles are within 3% and memory does not grow with games
+	 */
+	static class Latencies {
+		private static final int SUB_BITS = 5;
+		private final long[] counts = new long[64 << SUB_BITS];
+		private long total;
+		private long max;
+
+		void record(long micros) {
+			counts[index(micros)]++;
+			total++;
+			max = Math.max(max, micros);
+		}
+
+		/**
+		 * Returns a percentile of the recorded latencies
+		 *
+		 * @param percent : the percentile
+		 * @return the lower bound of the bucket below which percent of the latencies are, 0 without latencies
+		 */
+		long percentile(double percent) {
+			long rank = (long) Math.ceil(percent / 100.0 * total);
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if (seen >= rank && seen > 0) return value(i);
+			}
+			return 0;
+		}
+
+		private static int index(long micros) {
+			if (micros < (1 << SUB_BITS)) return (int) micros;
+			int exponent = 63 - Long.numberOfLeadingZeros(micros);
+			int sub = (int) (micros >>> (exponent - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+			return ((exponent - SUB_BITS + 1) << SUB_BITS) | sub;
+		}
+
+		private static long value(int index) {
+			int bucket = index >>> SUB_BITS;
+			long sub = index & ((1 << SUB_BITS) - 1);
+			if (bucket == 0) return sub;
+			return ((1L << SUB_BITS) | sub) << (bucket - 1);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("moves=%d p50=%dus p90=%dus p99=%dus p99.9=%dus max=%dus", total, percentile(50),
+					percentile(90), percentile(99), percentile(99.9), max);
+		}
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		if (args.length < 3) usage();
+		int size = Integer.parseInt(args[0]);
+		int lengthToWin = Integer.parseInt(args[1]);
+		int games = Integer.parseInt(args[2]);
+		Player a = new Player("");
+		Player b = new Player("");
+		int workers = Runtime.getRuntime().availableProcessors();
+		int randomPlies = 2;
+		long seed = 1;
+		for (int i = 3; i < args.length; i++) {
+			if (args[i].startsWith("--a=")) a = new Player(args[i].substring("--a=".length()));
+			else if (args[i].startsWith("--b=")) b = new Player(args[i].substring("--b=".length()));
+			else if (args[i].startsWith("--workers=")) workers = Integer.parseInt(args[i].substring("--workers=".length()));
+			else if (args[i].startsWith("--random-plies=")) randomPlies = Integer.parseInt(args[i].substring("--random-plies=".length()));
+			else if (args[i].startsWith("--seed=")) seed = Long.parseLong(args[i].substring("--seed=".length()));
+			else usage();
+		}
+
+		if (a.tableFile != null && b.tableFile != null && Paths.get(a.tableFile).toAbsolutePath().normalize()
+				.equals(Paths.get(b.tableFile).toAbsolutePath().normalize())) {
+			throw new IllegalArgumentException("Players A and B cannot share the table file " + a.tableFile);
+		}
+		Player playerA = a;
+		Player playerB = b;
+		int plies = randomPlies;
+		long gameSeed = seed;
+		List<Engine> created = Collections.synchronizedList(new ArrayList<>()); // Closed once the games are played, which saves table files
+		ThreadLocal<Engine[]> engines = ThreadLocal.withInitial(() -> {
+			Engine[] pair = {playerA.createEngine(size, lengthToWin), playerB.createEngine(size, lengthToWin)};
+			created.addAll(Arrays.asList(pair));
+			return pair;
+		});
+
+		System.err.println("A: " + playerA);
+		System.err.println("B: " + playerB);
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		ArrayDeque<Future<Game>> pending = new ArrayDeque<>();
+		Tally tally = new Tally(workers);
+		PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+		out.println("game,a_symbol,result,plies,a_ms,b_ms");
+		try {
+			for (int g = 0; g < games; g++) {
+				if (pending.size() >= READ_AHEAD * workers) {
+					tally.add(result(pending.removeFirst()), out);
+				}
+				int number = g;
+				pending.addLast(pool.submit(() -> play(engines.get(), size, lengthToWin, number, plies, gameSeed)));
+			}
+			while (!pending.isEmpty()) {
+				tally.add(result(pending.removeFirst()), out);
+			}
+		} finally {
+			pool.shutdownNow();
+			out.flush();
+			created.forEach(Engine::close);
+		}
+		System.err.println(tally.summary());
+	}
+
+	/**
+	 * Method that plays one game
+	 *
+	 * @param engines : the engines of player A and player B of the current worker
+	 * @param size : the size of the board
+	 * @param lengthToWin : the length of the sequence needed to win the game
+	 * @param number : the number of the game, which decides who plays first
+	 * @param randomPlies : the number of random plays the game starts with
+	 * @param seed : the seed of the run
+	 * @return the result of the game
+	 */
+	static Game play(Engine[] engines, int size, int lengthToWin, int number, int randomPlies, long seed) {
+		Game game = new Game(number, size * size);
+		Configurations board = new Configurations(size, lengthToWin, 0);
+		SplittableRandom random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + number);
+		char symbol = Search.HUMAN; // 'X' plays first
+		while (true) {
+			int row;
+			int col;
+			if (game.plies < randomPlies) {
+				do {
+					row = random.nextInt(size);
+					col = random.nextInt(size);
+				} while (!board.squareIsEmpty(row, col));
+			} else {
+				boolean playerA = symbol == game.aSymbol;
+				Engine engine = engines[playerA ? 0 : 1];
+				engine.setPosition(board);
+				long start = System.nanoTime();
+				PosPlay pos = engine.bestMove(symbol);
+				long elapsed = System.nanoTime() - start;
+				if (playerA) {
+					game.aNanos += elapsed;
+					game.aMoves[game.aCount++] = elapsed / 1000;
+				} else {
+					game.bNanos += elapsed;
+					game.bMoves[game.bCount++] = elapsed / 1000;
+				}
+				row = pos.getRow();
+				col = pos.getCol();
+			}
+			board.savePlay(row, col, symbol);
+			game.plies++;
+			if (board.winsAt(row, col, symbol)) {
+				game.winner = symbol;
+				return game;
+			}
+			if (board.isFull()) return game;
+			symbol = symbol == Search.HUMAN ? Search.COMPUTER : Search.HUMAN;
+		}
+	}
+
+	/**
+	 * The totals of a run, updated by the main thread only
+	 */
+	static class Tally {
+		private final int workers;
+		private final long start = System.nanoTime();
+		private long lastProgress = start;
+		private long games;
+		private long wins;     // Of player A
+		private long draws;
+		private long losses;
+		private final Latencies aLatencies = new Latencies();
+		private final Latencies bLatencies = new Latencies();
+
+		Tally(int workers) {
+			this.workers = workers;
+		}
+
+		/**
+		 * Adds a finished game, writes its CSV line and prints the summary if it was not printed for a while
+		 */
+		void add(Game game, PrintWriter out) {
+			if (game == null) return;
+			games++;
+			String result = game.result();
+			if (result.equals("A")) wins++;
+			else if (result.equals("B")) losses++;
+			else draws++;
+			for (int i = 0; i < game.aCount; i++) aLatencies.record(game.aMoves[i]);
+			for (int i = 0; i < game.bCount; i++) bLatencies.record(game.bMoves[i]);
+			out.printf("%d,%c,%s,%d,%.3f,%.3f%n", game.number, game.aSymbol, result, game.plies, game.aNanos / 1e6,
+					game.bNanos / 1e6);
+
+			long now = System.nanoTime();
+			if (now - lastProgress > PROGRESS_NANOS) {
+				lastProgress = now;
+				out.flush();
+				System.err.println(summary());
+			}
+		}
+
+		/**
+		 * Returns the games per second, the results of A with 95% intervals and the move latencies
+		 *
+		 * @return the summary on several lines
+		 */
+		String summary() {
+			double seconds = (System.nanoTime() - start) / 1e9;
+			StringBuilder text = new StringBuilder();
+			text.append(String.format("games=%d in %.1f s (%.1f games/s, %d workers)%n", games, seconds, games / seconds,
+					workers));
+			if (games == 0) return text.toString().trim();
+			text.append(String.format("A wins %s  draws %s  losses %s%n", proportion(wins), proportion(draws),
+					proportion(losses)));
+
+			// Score of A, a win counting 1 and a draw 1/2, with a normal interval over the per-game scores
+			double score = (wins + draws / 2.0) / games;
+			double variance = (wins * Math.pow(1 - score, 2) + draws * Math.pow(0.5 - score, 2)
+					+ losses * Math.pow(score, 2)) / games;
+			double margin = Z95 * Math.sqrt(variance / games);
+			text.append(String.format("A score %.1f%% +- %.1f%%  elo %s [%s, %s]%n", 100 * score, 100 * margin,
+					elo(score), elo(score - margin), elo(score + margin)));
+			text.append("A move ").append(aLatencies).append(System.lineSeparator());
+			text.append("B move ").append(bLatencies);
+			return text.toString();
+		}
+
+		/**
+		 * Method that writes a count as a percentage of the games with its 95% Wilson score interval
+		 */
+		private String proportion(long count) {
+			double p = (double) count / games;
+			double z2 = Z95 * Z95;
+			double center = (p + z2 / (2 * games)) / (1 + z2 / games);
+			double half = Z95 * Math.sqrt(p * (1 - p) / games + z2 / (4.0 * games * games)) / (1 + z2 / games);
+			return String.format("%d %.1f%% [%.1f%%, %.1f%%]", count, 100 * p, 100 * Math.max(0, center - half),
+					100 * Math.min(1, center + half));
+		}
+
+		/**
+		 * Method that converts a score to an Elo difference
+		 */
+		private static String elo(double score) {
+			if (score <= 0) return "-inf";
+			if (score >= 1) return "+inf";
+			return String.format("%+.0f", -400 * Math.log10(1 / score - 1) + 0.0); // + 0.0 turns -0.0 into 0.0
+		}
+	}
+
+	/**
+	 * Method that waits for the result of a game
+	 */
+	private static Game result(Future<Game> future) throws InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			System.err.println("game failed: " + e.getCause());
+			return null;
+		}
+	}
+
+	/* Print the command line syntax and terminate */
+	private static void usage() {
+		System.out.println("Usage: java SelfPlay board-size shape-length games [--a=settings] [--b=settings]"
+				+ " [--workers=n] [--random-plies=n] [--seed=n]");
+		System.out.println("Settings: depth=n,dict=chained|open|concurrent|transposition|offheap,table-mb=n,table-file=file,"
+				+ "tablebase=file,ordering=on|off,symmetry=on|off,time=ms,threads=n,neighbourhood=d,search=alphabeta|pvs|mtdf|mcts");
+		System.exit(0);
+	}
+}
@@ -0,0 +1,229 @@
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This class implements the Dictionary ADT for tables shared by several search threads
+ * Records are spread over independent HashDictionary stripes by the high bits of their key,
+ * and each stripe is guarded by its own read/write lock, so threads only contend when they use the same stripe
+ * Inserting a configuration that is already stored keeps the first record instead of throwing a DictionaryException
+ *
+ * @author Ivory Huo
+ */
+public class StripedDictionary implements DictionaryADT {
+
+	private HashDictionary[] stripes;
+	private ReentrantReadWriteLock[] locks;
+	private int stripeBits; // Number of stripes is 2^stripeBits
+
+	/**
+	 * Constructor for the StripedDictionary class
+	 *
+	 * @param size : the total number of buckets, split evenly between the stripes
+	 * @param stripeCount : the number of stripes, rounded up to a power of two
+	 */
+	public StripedDictionary(int size, int stripeCount) {
+		stripeBits = 32 - Integer.numberOfLeadingZeros(Math.max(1, stripeCount) - 1);
+		int count = 1 << stripeBits;
+		stripes = new HashDictionary[count];
+		locks = new ReentrantReadWriteLock[count];
+		for (int i = 0; i < count; i++) {
+			stripes[i] = new HashDictionary(Math.max(1, size / count));
+			locks[i] = new ReentrantReadWriteLock();
+		}
+	}
+
+	/**
+	 * Method that selects the stripe of a key
+	 * HashDictionary places records by the low bits of the key, so stripes use the high bits
+	 *
+	 * @param key : the 64-bit key of the configuration
+	 * @return the index of the stripe
+	 */
+	private int stripeOf(long key) {
+		return stripeBits == 0 ? 0 : (int) (key >>> (64 - stripeBits));
+	}
+
+	@Override
+	/**
+	 * Constructor that adds records to the dictionary
+	 * If the configuration is already stored by another thread, the stored record is kept
+	 *
+	 * @param record The Data object to insert
+	 * @return returns 1 if the insertion caused a collision, 0 otherwise or if the configuration was already stored
+	 */
+	public int put(Data record) {
+		int stripe = stripeOf(record.getKey());
+		ReentrantReadWriteLock.WriteLock lock = locks[stripe].writeLock();
+		lock.lock();
+		try {
+			HashDictionary dictionary = stripes[stripe];
+			boolean stored = record.getConfiguration() != null
+					? dictionary.get(record.getConfiguration()) != -1
+					: dictionary.get(record.getKey(), record.getPackedConfiguration()) != -1;
+			if (stored) return 0; // First writer wins
+			return dictionary.put(record);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	/**
+	 * Constructor that removes the record with the given config from the dictionary
+	 *
+	 * @param config : the configuration string of the record to remove
+	 * @throws DictionaryException if the configuration is not found in the dictionary
+	 */
+	public void remove(String config) throws DictionaryException {
+		int stripe = stripeOf(Data.stringKey(config));
+		ReentrantReadWriteLock.WriteLock lock = locks[stripe].writeLock();
+		lock.lock();
+		try {
+			stripes[stripe].remove(config);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	/**
+	 * Constructor that removes the record with the given compact key from the dictionary
+	 *
+	 * @param key : the Zobrist hash of the configuration to remove
+	 * @param packedConfig : the packed board of the configuration to remove
+	 * @throws DictionaryException if the configuration is not found in the dictionary
+	 */
+	public void remove(long key, long[] packedConfig) throws DictionaryException {
+		int stripe = stripeOf(key);
+		ReentrantReadWriteLock.WriteLock lock = locks[stripe].writeLock();
+		lock.lock();
+		try {
+			stripes[stripe].remove(key, packedConfig);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	/**
+	 * Constructor that returns the score stored with key config, or -1 if config is not in the dictionary
+	 *
+	 * @param config : the configuration string whose score is to be retrieved
+	 * @return the score associated with the configuration, or -1 if it is not found
+	 */
+	public int get(String config) {
+		int stripe = stripeOf(Data.stringKey(config));
+		ReentrantReadWriteLock.ReadLock lock = locks[stripe].readLock();
+		lock.lock();
+		try {
+			return stripes[stripe].get(config);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	/**
+	 * Constructor that returns the score stored with the given compact key, or -1 if it is not in the dictionary
+	 *
+	 * @param key : the Zobrist hash of the configuration whose score is to be retrieved
+	 * @param packedConfig : the packed board used to verify the hash
+	 * @return the score associated with the configuration, or -1 if it is not found
+	 */
+	public int get(long key, long[] packedConfig) {
+		int stripe = stripeOf(key);
+		ReentrantReadWriteLock.ReadLock lock = locks[stripe].readLock();
+		lock.lock();
+		try {
+			return stripes[stripe].get(key, packedConfig);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	/**
+	 * Constructor that returns the record stored with the given compact key, or null if it is not in the dictionary
+	 *
+	 * @param key : the Zobrist hash of the configuration whose record is to be retrieved
+	 * @param packedConfig : the packed board used to verify the hash
+	 * @return a copy of the record of the configuration, or null if it is not found
+	 */
+	public Data getData(long key, long[] packedConfig) {
+		int stripe = stripeOf(key);
+		ReentrantReadWriteLock.ReadLock lock = locks[stripe].readLock();
+		lock.lock();
+		try {
+			// A copy, since HashDictionary updates its records in place under the write lock
+			Data data = stripes[stripe].getData(key, packedConfig);
+			if (data == null) return null;
+			return new Data(data.getKey(), data.getPackedConfiguration(), data.getScore(), data.getDepth(),
+					data.getBound(), data.getBestMove());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	/**
+	 * Constructor that returns the search result stored with the given compact key, without allocating
+	 *
+	 * @param key : the Zobrist hash of the configuration whose record is to be retrieved
+	 * @param packedConfig : the packed board used to verify the hash
+	 * @return the record packed by Data.pack, or Data.NONE if it is not found
+	 */
+	public long probe(long key, long[] packedConfig) {
+		int stripe = stripeOf(key);
+		ReentrantReadWriteLock.ReadLock lock = locks[stripe].readLock();
+		lock.lock();
+		try {
+			return stripes[stripe].probe(key, packedConfig);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	/**
+	 * Constructor that stores a search result, updating the record of the configuration in place if there is one
+	 * Unlike put, the last writer wins: a thread storing a result has searched the configuration at least as far as needed
+	 *
+	 * @param key : the Zobrist hash of the configuration
+	 * @param packedConfig : the packed board, copied if a new record is created
+	 * @param score : the score of the configuration
+	 * @param depth : the number of levels of the game tree searched below the configuration
+	 * @param bound : Data.EXACT, Data.LOWER_BOUND or Data.UPPER_BOUND
+	 * @param bestMove : the best play found, or -1 if none
+	 * @return returns 1 if a new record was inserted in an occupied bucket, 0 otherwise
+	 */
+	public int store(long key, long[] packedConfig, int score, int depth, int bound, int bestMove) {
+		int stripe = stripeOf(key);
+		ReentrantReadWriteLock.WriteLock lock = locks[stripe].writeLock();
+		lock.lock();
+		try {
+			return stripes[stripe].store(key, packedConfig, score, depth, bound, bestMove);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	/**
+	 * Constructor that returns the number of records stored in the dictionary
+	 * The count is a sum over stripes read one at a time, so it is only exact when no thread is writing
+	 *
+	 * @return the total number of records
+	 */
+	public int numRecords() {
+		int count = 0;
+		for (int i = 0; i < stripes.length; i++) {
+			ReentrantReadWriteLock.ReadLock lock = locks[i].readLock();
+			lock.lock();
+			try {
+				count += stripes[i].numRecords();
+			} finally {
+				lock.unlock();
+			}
+		}
+		return count;
+	}
+}
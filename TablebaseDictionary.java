@@ -0,0 +1,241 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class implements the Dictionary ADT over a tablebase written by TablebaseSolver, backed by another dictionary
+ * The tablebase holds the exact score of every reachable position of a small board and is memory-mapped, not read:
+ * opening it costs nothing, and lookups binary search the sorted records in the page cache without allocating
+ * Positions the tablebase does not hold, and every record put or removed, go to the backing dictionary
+ * Scores assume 'X' played first, as in Play, since the side to play is told by the number of plays on the board
+ *
+ * File layout, big-endian: a 32-byte header (magic, version, board size, length to win as ints, then the record count
+ * as a long and 8 reserved bytes) followed by the records, sorted ascending. Each record is one long: the canonical
+ * packed board (2 bits per cell, as in Configurations) shifted left 8 bits, with the score in the low 8 bits.
+ * The canonical packed board is the smallest of its 8 rotations and reflections, so symmetric boards share a record.
+ *
+ * @author Ivory Huo
+ */
+public class TablebaseDictionary implements DictionaryADT {
+
+	public static final int MAGIC = 0x54544221;  // "TTB!"
+	public static final int VERSION = 1;
+	public static final int HEADER_BYTES = 32;
+	public static final int RECORD_BYTES = 8;
+	public static final int MAX_CELLS = 28;       // The packed board and the score must fit in a long
+	public static final int SOLVED_DEPTH = Integer.MAX_VALUE; // Depth of the records returned by getData
+
+	// Files mapped by this program, shared by every dictionary reading them
+	private static final Map<Path, MappedByteBuffer> MAPPED = new HashMap<>();
+
+	private final MappedByteBuffer records;
+	private final long count;
+	private final int[][] symmetricCells;
+	private final DictionaryADT fallback;
+
+	/**
+	 * Constructor for the TablebaseDictionary class
+	 *
+	 * @param path : the tablebase file
+	 * @param boardSize : the size of the board searched
+	 * @param lengthToWin : the length of the sequence needed to win the game
+	 * @param fallback : the dictionary storing the positions the tablebase does not hold
+	 * @throws IllegalArgumentException if the file is not a tablebase for this board size and length to win
+	 * @throws UncheckedIOException if the file cannot be mapped
+	 */
+	public TablebaseDictionary(String path, int boardSize, int lengthToWin, DictionaryADT fallback) {
+		this.records = map(Paths.get(path));
+		if (records.getInt(0) != MAGIC || records.getInt(4) != VERSION) {
+			throw new IllegalArgumentException(path + " is not a tablebase");
+		}
+		if (records.getInt(8) != boardSize || records.getInt(12) != lengthToWin) {
+			throw new IllegalArgumentException(path + " solves " + records.getInt(8) + "x" + records.getInt(8)
+					+ " boards with length " + records.getInt(12) + " to win");
+		}
+		this.count = records.getLong(16);
+		this.symmetricCells = Configurations.symmetricCells(boardSize);
+		this.fallback = fallback;
+	}
+
+	/**
+	 * Method that maps a tablebase file read-only, once per program
+	 *
+	 * @param path : the tablebase file
+	 * @return the mapped file
+	 */
+	private static synchronized MappedByteBuffer map(Path path) {
+		Path file = path.toAbsolutePath().normalize();
+		MappedByteBuffer buffer = MAPPED.get(file);
+		if (buffer == null) {
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			MAPPED.put(file, buffer);
+		}
+		return buffer;
+	}
+
+	/**
+	 * Returns the smallest of the packed images of a board under its rotations and reflections
+	 *
+	 * @param packed : the board packed 2 bits per cell, at most MAX_CELLS cells
+	 * @param symmetricCells : the cells each transform moves each cell to, from Configurations.symmetricCells
+	 * @return the canonical packed board
+	 */
+	public static long canonical(long packed, int[][] symmetricCells) {
+		long best = Long.MAX_VALUE;
+		for (int[] cells : symmetricCells) {
+			long image = 0;
+			for (int cell = 0; cell < cells.length; cell++) {
+				long symbol = (packed >>> (cell * 2)) & 3;
+				image |= symbol << (cells[cell] * 2);
+			}
+			if (image < best) best = image;
+		}
+		return best;
+	}
+
+	/**
+	 * Method that finds the score of a board in the tablebase
+	 *
+	 * @param packedConfig : the board packed 2 bits per cell
+	 * @return the exact score of the board, or -1 if the tablebase does not hold it
+	 */
+	private int solvedScore(long[] packedConfig) {
+		if (packedConfig == null || packedConfig.length != 1) return -1;
+		long target = canonical(packedConfig[0], symmetricCells);
+		long low = 0;
+		long high = count - 1;
+		while (low <= high) {
+			long middle = (low + high) >>> 1;
+			long record = records.getLong(HEADER_BYTES + (int) middle * RECORD_BYTES);
+			long board = record >>> 8;
+			if (board < target) low = middle + 1;
+			else if (board > target) high = middle - 1;
+			else return (int) record & 0xff;
+		}
+		return -1;
+	}
+
+	@Override
+	/**
+	 * Constructor that adds records to the backing dictionary
+	 *
+	 * @param record The Data object to insert
+	 * @return the result of the backing dictionary's put
+	 * @throws DictionaryException if the backing dictionary already holds the configuration
+	 */
+	public int put(Data record) throws DictionaryException {
+		return fallback.put(record);
+	}
+
+	@Override
+	/**
+	 * Constructor that removes the record with the given config from the backing dictionary
+	 *
+	 * @param config : the configuration string of the record to remove
+	 * @throws DictionaryException if the configuration is not found in the backing dictionary
+	 */
+	public void remove(String config) throws DictionaryException {
+		fallback.remove(config);
+	}
+
+	@Override
+	/**
+	 * Constructor that returns the score stored with key config in the backing dictionary, or -1 if it is not there
+	 *
+	 * @param config : the configuration string whose score is to be retrieved
+	 * @return the score associated with the configuration, or -1 if it is not found
+	 */
+	public int get(String config) {
+		return fallback.get(config);
+	}
+
+	@Override
+	/**
+	 * Constructor that removes the record with the given compact key from the backing dictionary
+	 * Tablebase records are read-only
+	 *
+	 * @param key : the Zobrist hash of the configuration to remove
+	 * @param packedConfig : the packed board of the configuration to remove
+	 * @throws DictionaryException if the configuration is not found in the backing dictionary
+	 */
+	public void remove(long key, long[] packedConfig) throws DictionaryException {
+		fallback.remove(key, packedConfig);
+	}
+
+	@Override
+	/**
+	 * Constructor that returns the score of a board, from the tablebase if it holds it, or from the backing dictionary
+	 *
+	 * @param key : the Zobrist hash of the configuration whose score is to be retrieved
+	 * @param packedConfig : the packed board, looked up in the tablebase
+	 * @return the score associated with the configuration, or -1 if it is not found
+	 */
+	public int get(long key, long[] packedConfig) {
+		int score = solvedScore(packedConfig);
+		return score != -1 ? score : fallback.get(key, packedConfig);
+	}
+
+	@Override
+	/**
+	 * Constructor that returns the record of a board, an exact solved score if the tablebase holds it
+	 *
+	 * @param key : the Zobrist hash of the configuration whose record is to be retrieved
+	 * @param packedConfig : the packed board, looked up in the tablebase
+	 * @return the record of the configuration, or null if it is not found
+	 */
+	public Data getData(long key, long[] packedConfig) {
+		int score = solvedScore(packedConfig);
+		if (score == -1) return fallback.getData(key, packedConfig);
+		return new Data(key, null, score, SOLVED_DEPTH, Data.EXACT, -1);
+	}
+
+	@Override
+	/**
+	 * Constructor that returns the search result of a board, an exact solved score if the tablebase holds it
+	 *
+	 * @param key : the Zobrist hash of the configuration whose record is to be retrieved
+	 * @param packedConfig : the packed board, looked up in the tablebase
+	 * @return the record packed by Data.pack, or Data.NONE if it is not found
+	 */
+	public long probe(long key, long[] packedConfig) {
+		int score = solvedScore(packedConfig);
+		if (score == -1) return fallback.probe(key, packedConfig);
+		return Data.pack(score, SOLVED_DEPTH, Data.EXACT, -1);
+	}
+
+	@Override
+	/**
+	 * Constructor that stores a search result in the backing dictionary
+	 *
+	 * @param key : the Zobrist hash of the configuration
+	 * @param packedConfig : the packed board of the configuration
+	 * @param score : the score of the configuration
+	 * @param depth : the number of levels of the game tree searched below the configuration
+	 * @param bound : Data.EXACT, Data.LOWER_BOUND or Data.UPPER_BOUND
+	 * @param bestMove : the best play found, or -1 if none
+	 * @return the result of the backing dictionary's store
+	 */
+	public int store(long key, long[] packedConfig, int score, int depth, int bound, int bestMove) {
+		return fallback.store(key, packedConfig, score, depth, bound, bestMove);
+	}
+
+	@Override
+	/**
+	 * Constructor that returns the number of records in the tablebase and the backing dictionary
+	 *
+	 * @return the total number of records
+	 */
+	public int numRecords() {
+		return (int) Math.min(Integer.MAX_VALUE, count + fallback.numRecords());
+	}
+}
@@ -0,0 +1,278 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * This class solves every position reachable from the empty board of a small game and writes them as a tablebase
+ * read by TablebaseDictionary. 'X' (the human) plays first, as in Play.
+ * Positions are grouped by number of plays. The positions of each layer are generated from the previous one, and the
+ * layers are then scored from the last one back, each position from the scores of its children. Both passes split
+ * their layer over the threads of a ForkJoinPool. Positions are stored as canonical packed boards, so a layer is a
+ * sorted long[] searched with a binary search, and symmetric positions are solved once.
+ * Only positions where the game goes on are stored, since the search evaluates won and full boards itself.
+ *
+ * To run the program type: java TablebaseSolver size length output-file [threads]
+ * Boards up to 4x4 solve in seconds, larger ones have too many positions.
+ *
+ * @author Ivory Huo
+ */
+public class TablebaseSolver {
+
+	private static final int SPLIT = 2048; // Positions a task handles without splitting
+
+	private final int boardSize;
+	private final int lengthToWin;
+	private final int cells;
+	private final int[][] symmetricCells;
+	private final ThreadLocal<Configurations> boards; // Board of each thread, loaded from a packed board
+	private final ForkJoinPool pool;
+
+	/**
+	 * Constructor for the TablebaseSolver class
+	 *
+	 * @param boardSize : the size of the board
+	 * @param lengthToWin : the length of the sequence needed to win the game
+	 * @param threads : the number of threads solving
+	 * @throws IllegalArgumentException if the board has more than TablebaseDictionary.MAX_CELLS cells
+	 */
+	public TablebaseSolver(int boardSize, int lengthToWin, int threads) {
+		if (boardSize * boardSize > TablebaseDictionary.MAX_CELLS) {
+			throw new IllegalArgumentException("Boards larger than 5x5 cannot be stored in a tablebase");
+		}
+		this.boardSize = boardSize;
+		this.lengthToWin = lengthToWin;
+		this.cells = boardSize * boardSize;
+		this.symmetricCells = Configurations.symmetricCells(boardSize);
+		this.boards = ThreadLocal.withInitial(() -> {
+			Configurations board = new Configurations(boardSize, lengthToWin, 0);
+			board.setSymmetryReduction(false); // Canonical boards are computed here
+			return board;
+		});
+		this.pool = new ForkJoinPool(threads);
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.out.println("Usage: java TablebaseSolver board-size shape-length output-file [threads]");
+			System.exit(0);
+		}
+		int boardSize = Integer.parseInt(args[0]);
+		int lengthToWin = Integer.parseInt(args[1]);
+		int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+		long start = System.nanoTime();
+		TablebaseSolver solver = new TablebaseSolver(boardSize, lengthToWin, threads);
+		long[] records = solver.solve();
+		solver.write(args[2], records);
+		System.out.printf("%d positions written to %s in %.1f s%n", records.length, args[2],
+				(System.nanoTime() - start) / 1e9);
+	}
+
+	/**
+	 * Solves every position reachable from the empty board
+	 *
+	 * @return the sorted records, canonical packed board << 8 | score
+	 */
+	public long[] solve() {
+		// Positions where the game goes on, by number of plays
+		List<long[]> layers = new ArrayList<>();
+		layers.add(new long[] {0});
+		for (int plays = 0; plays < cells - 1; plays++) {
+			long[] next = pool.invoke(new ExpandTask(layers.get(plays), plays, 0, layers.get(plays).length));
+			next = distinct(next);
+			if (next.length == 0) break;
+			layers.add(next);
+		}
+
+		byte[][] scores = new byte[layers.size()][];
+		for (int plays = layers.size() - 1; plays >= 0; plays--) {
+			long[] layer = layers.get(plays);
+			long[] children = plays + 1 < layers.size() ? layers.get(plays + 1) : new long[0];
+			byte[] childScores = plays + 1 < layers.size() ? scores[plays + 1] : new byte[0];
+			scores[plays] = new byte[layer.length];
+			pool.invoke(new ScoreTask(layer, plays, children, childScores, scores[plays], 0, layer.length));
+		}
+
+		int total = 0;
+		for (long[] layer : layers) total += layer.length;
+		long[] records = new long[total];
+		int r = 0;
+		for (int plays = 0; plays < layers.size(); plays++) {
+			long[] layer = layers.get(plays);
+			for (int i = 0; i < layer.length; i++) {
+				records[r++] = (layer[i] << 8) | scores[plays][i];
+			}
+		}
+		Arrays.parallelSort(records);
+		return records;
+	}
+
+	/**
+	 * Method that writes the records with the header TablebaseDictionary expects
+	 *
+	 * @param path : the output file
+	 * @param records : the sorted records
+	 */
+	private void write(String path, long[] records) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(path))))) {
+			out.writeInt(TablebaseDictionary.MAGIC);
+			out.writeInt(TablebaseDictionary.VERSION);
+			out.writeInt(boardSize);
+			out.writeInt(lengthToWin);
+			out.writeLong(records.length);
+			out.writeLong(0);
+			for (long record : records) {
+				out.writeLong(record);
+			}
+		}
+	}
+
+	/**
+	 * Method that sorts positions and removes the duplicates
+	 *
+	 * @param positions : canonical packed boards
+	 * @return the distinct boards, sorted
+	 */
+	private static long[] distinct(long[] positions) {
+		Arrays.parallelSort(positions);
+		int count = 0;
+		for (int i = 0; i < positions.length; i++) {
+			if (count == 0 || positions[i] != positions[count - 1]) positions[count++] = positions[i];
+		}
+		return Arrays.copyOf(positions, count);
+	}
+
+	/**
+	 * Method that loads a packed board into the board of the current thread
+	 *
+	 * @param packed : the board packed 2 bits per cell
+	 * @return the board
+	 */
+	private Configurations load(long packed) {
+		Configurations board = boards.get();
+		for (int cell = 0; cell < cells; cell++) {
+			int symbol = (int) (packed >>> (cell * 2)) & 3;
+			board.savePlay(cell / boardSize, cell % boardSize, symbol == 1 ? 'X' : symbol == 2 ? 'O' : ' ');
+		}
+		return board;
+	}
+
+	/**
+	 * Method that returns the symbol to play after a number of plays
+	 */
+	private static char toPlay(int plays) {
+		return plays % 2 == 0 ? 'X' : 'O';
+	}
+
+	/**
+	 * Task that generates the children of a range of a layer where the game goes on
+	 */
+	private class ExpandTask extends RecursiveTask<long[]> {
+		private static final long serialVersionUID = 1L;
+		private final long[] layer;
+		private final int plays;
+		private final int from;
+		private final int to;
+
+		ExpandTask(long[] layer, int plays, int from, int to) {
+			this.layer = layer;
+			this.plays = plays;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected long[] compute() {
+			if (to - from > SPLIT) {
+				int middle = (from + to) >>> 1;
+				ExpandTask left = new ExpandTask(layer, plays, from, middle);
+				left.fork();
+				long[] right = new ExpandTask(layer, plays, middle, to).compute();
+				long[] result = left.join();
+				long[] both = Arrays.copyOf(result, result.length + right.length);
+				System.arraycopy(right, 0, both, result.length, right.length);
+				return both;
+			}
+			char symbol = toPlay(plays);
+			long[] children = new long[(to - from) * (cells - plays)];
+			int count = 0;
+			for (int i = from; i < to; i++) {
+				Configurations board = load(layer[i]);
+				for (int cell = 0; cell < cells; cell++) {
+					int row = cell / boardSize;
+					int col = cell % boardSize;
+					if (!board.squareIsEmpty(row, col)) continue;
+					board.savePlay(row, col, symbol);
+					if (!board.winsAt(row, col, symbol) && !board.isFull()) {
+						children[count++] = TablebaseDictionary.canonical(board.getPackedConfiguration()[0], symmetricCells);
+					}
+					board.savePlay(row, col, ' ');
+				}
+			}
+			return Arrays.copyOf(children, count);
+		}
+	}
+
+	/**
+	 * Task that scores a range of a layer from the scores of the next one
+	 */
+	private class ScoreTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final long[] layer;
+		private final int plays;
+		private final long[] children;
+		private final byte[] childScores;
+		private final byte[] scores;
+		private final int from;
+		private final int to;
+
+		ScoreTask(long[] layer, int plays, long[] children, byte[] childScores, byte[] scores, int from, int to) {
+			this.layer = layer;
+			this.plays = plays;
+			this.children = children;
+			this.childScores = childScores;
+			this.scores = scores;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > SPLIT) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new ScoreTask(layer, plays, children, childScores, scores, from, middle),
+						new ScoreTask(layer, plays, children, childScores, scores, middle, to));
+				return;
+			}
+			char symbol = toPlay(plays);
+			for (int i = from; i < to; i++) {
+				Configurations board = load(layer[i]);
+				int value = symbol == Search.COMPUTER ? -1 : 4;
+				for (int cell = 0; cell < cells; cell++) {
+					int row = cell / boardSize;
+					int col = cell % boardSize;
+					if (!board.squareIsEmpty(row, col)) continue;
+					board.savePlay(row, col, symbol);
+					int score;
+					if (board.winsAt(row, col, symbol) || board.isFull()) {
+						score = board.evalBoard(row, col, symbol);
+					} else {
+						long child = TablebaseDictionary.canonical(board.getPackedConfiguration()[0], symmetricCells);
+						score = childScores[Arrays.binarySearch(children, child)];
+					}
+					board.savePlay(row, col, ' ');
+					value = symbol == Search.COMPUTER ? Math.max(value, score) : Math.min(value, score);
+				}
+				scores[i] = (byte) value;
+			}
+		}
+	}
+}
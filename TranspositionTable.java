@@ -0,0 +1,385 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class implements the Dictionary ADT as a fixed-size transposition table meant to live across moves and games
+ * Its memory is set at construction and never grows: when the 4 slots a key can use are full, a record is evicted,
+ * preferring records stored during earlier searches (older generation), then records searched to a smaller depth
+ * Each slot is a key and a word of metadata (score, depth, generation, bound, best play); the key is stored XORed with the metadata so a
+ * slot half-written by another thread fails the key check instead of returning a wrong score, and threads can share it
+ * Records are identified by their 64-bit key only: the packed board passed to get and remove is not stored or verified
+ * The slots are two long arrays; OffHeapTranspositionTable keeps them outside the heap instead
+ *
+ * @author Ivory Huo
+ */
+public class TranspositionTable implements DictionaryADT {
+
+	private static final int BUCKET = 4;             // Slots a key can be stored in
+	protected static final int BYTES_PER_SLOT = 16;  // A long key and a long of metadata
+
+	// Layout of the metadata word
+	protected static final long VALID = 1L << 24;
+	private static final int DEPTH_SHIFT = 8;
+	private static final int GENERATION_SHIFT = 16;
+	private static final int BOUND_SHIFT = 25;
+	private static final int MOVE_SHIFT = 32;      // Best play + 1, 0 for none
+
+	// Tables shared by every search on boards of the same size and length to win, by memory
+	private static final Map<String, TranspositionTable> SHARED = new HashMap<>();
+
+	private final long[] keys; // Key XORed with the metadata of each slot, null if a subclass keeps the slots
+	private final long[] meta; // Metadata of each slot, 0 for a free slot
+	private final int capacity;
+	private final int bucketMask;
+	private int generation;    // Incremented for every search, 8 bits
+
+	// Counters, updated without synchronization so they can be slightly off when threads share the table
+	private int records;
+	private long hits;
+	private long misses;
+	private long stores;
+	private long evictions;
+
+	/**
+	 * Constructor for the TranspositionTable class
+	 *
+	 * @param megabytes : the memory the slots may use, rounded down to a power of two number of slots
+	 */
+	public TranspositionTable(int megabytes) {
+		this((long) megabytes * 1024 * 1024, true);
+	}
+
+	/**
+	 * Constructor that sizes the table, for subclasses keeping the slots elsewhere
+	 *
+	 * @param bytes : the memory the slots may use, rounded down to a power of two number of slots
+	 * @param onHeap : false if the subclass overrides keyAt, metaAt and writeSlot to keep the slots
+	 */
+	protected TranspositionTable(long bytes, boolean onHeap) {
+		long slots = Math.max(BUCKET, bytes / BYTES_PER_SLOT);
+		capacity = (int) Math.min(Long.highestOneBit(slots), 1 << 30);
+		keys = onHeap ? new long[capacity] : null;
+		meta = onHeap ? new long[capacity] : null;
+		bucketMask = capacity / BUCKET - 1;
+	}
+
+	/**
+	 * Returns the table shared by all searches on boards of a given size and length to win with a given memory,
+	 * creating it if needed. Zobrist keys only depend on the board size, and scores on the length to win, so such
+	 * searches can reuse each other's records; searches asking for another memory get a table of that memory.
+	 * Searches restricted to the plays near taken cells score boards differently, so each distance has its own table.
+	 *
+	 * @param boardSize : the size of the board
+	 * @param lengthToWin : the length of the sequence needed to win the game
+	 * @param candidateDistance : the candidate distance of the searches, 0 for unrestricted searches
+	 * @param megabytes : the memory of the table
+	 * @return the shared table
+	 */
+	public static synchronized TranspositionTable shared(int boardSize, int lengthToWin, int candidateDistance, int megabytes) {
+		return SHARED.computeIfAbsent(boardSize + "/" + lengthToWin + "/" + candidateDistance + "/" + megabytes,
+				name -> new TranspositionTable(megabytes));
+	}
+
+	/**
+	 * Starts a new search: records stored from now on are preferred over older ones when slots run out
+	 */
+	public void newGeneration() {
+		generation = (generation + 1) & 0xff;
+	}
+
+	/**
+	 * Returns the generation of the current search
+	 *
+	 * @return the generation, from 0 to 255
+	 */
+	protected int getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Method that sets the generation, for a table reloaded with the records of earlier searches
+	 *
+	 * @param generation : the generation of the last search, from 0 to 255
+	 */
+	protected void setGeneration(int generation) {
+		this.generation = generation & 0xff;
+	}
+
+	/**
+	 * Method that counts the records from the slots, for a table reloaded with the records of earlier searches
+	 */
+	protected void countRecords() {
+		int count = 0;
+		for (int slot = 0; slot < capacity; slot++) {
+			if ((metaAt(slot) & VALID) != 0) count++;
+		}
+		records = count;
+	}
+
+	/**
+	 * Returns the key XORed with the metadata stored in a slot
+	 *
+	 * @param slot : the index of the slot
+	 * @return the stored key
+	 */
+	protected long keyAt(int slot) {
+		return keys[slot];
+	}
+
+	/**
+	 * Returns the metadata stored in a slot
+	 *
+	 * @param slot : the index of the slot
+	 * @return the metadata, 0 for a free slot
+	 */
+	protected long metaAt(int slot) {
+		return meta[slot];
+	}
+
+	/**
+	 * Method that stores a slot, the key before the metadata so readers check the key against the metadata it goes with
+	 *
+	 * @param slot : the index of the slot
+	 * @param storedKey : the key XORed with the metadata
+	 * @param m : the metadata, 0 to free the slot
+	 */
+	protected void writeSlot(int slot, long storedKey, long m) {
+		keys[slot] = storedKey;
+		meta[slot] = m;
+	}
+
+	/**
+	 * Method that returns the first slot of the bucket of a key
+	 *
+	 * @param key : the 64-bit key of the configuration
+	 * @return the index of the first slot
+	 */
+	private int bucketOf(long key) {
+		return ((int) (key ^ (key >>> 32)) & bucketMask) * BUCKET;
+	}
+
+	/**
+	 * Method that finds the slot holding a key
+	 *
+	 * @param key : the 64-bit key of the configuration
+	 * @return the slot holding the key, or -1 if it is not stored
+	 */
+	private int find(long key) {
+		int first = bucketOf(key);
+		for (int slot = first; slot < first + BUCKET; slot++) {
+			long m = metaAt(slot);
+			if ((m & VALID) != 0 && (keyAt(slot) ^ m) == key) return slot;
+		}
+		return -1;
+	}
+
+	@Override
+	/**
+	 * Constructor that adds records to the dictionary
+	 * A record already stored for the key is replaced if the new one was searched at least as deep or the old one is from
+	 * an earlier search, instead of throwing a DictionaryException
+	 *
+	 * @param record The Data object to insert, with a score from 0 to 255
+	 * @return returns 1 if a record of another configuration was evicted, 0 otherwise
+	 */
+	public int put(Data record) {
+		return store(record.getKey(), null, record.getScore(), record.getDepth(), record.getBound(), record.getBestMove());
+	}
+
+	@Override
+	/**
+	 * Constructor that stores a search result, with the replacement rules of put, without allocating
+	 *
+	 * @param key : the Zobrist hash of the configuration
+	 * @param packedConfig : ignored, records are identified by key only
+	 * @param score : the score of the configuration, from 0 to 255
+	 * @param depth : the number of levels of the game tree searched below the configuration
+	 * @param bound : Data.EXACT, Data.LOWER_BOUND or Data.UPPER_BOUND
+	 * @param bestMove : the best play found, or -1 if none
+	 * @return returns 1 if a record of another configuration was evicted, 0 otherwise
+	 */
+	public int store(long key, long[] packedConfig, int score, int depth, int bound, int bestMove) {
+		long m = VALID | (long) (generation << GENERATION_SHIFT) | (long) (Math.min(depth, 255) << DEPTH_SHIFT)
+				| (score & 0xff) | ((long) bound << BOUND_SHIFT) | ((long) (bestMove + 1) << MOVE_SHIFT);
+		stores++;
+
+		int slot = find(key);
+		if (slot != -1) {
+			long old = metaAt(slot);
+			if (generationOf(old) == generation && depthOf(old) > depth) return 0; // Keep the deeper record
+			write(slot, key, m);
+			return 0;
+		}
+
+		// Take a free slot, or evict the least valuable record of the bucket
+		int first = bucketOf(key);
+		int victim = first;
+		int victimValue = Integer.MAX_VALUE;
+		for (int s = first; s < first + BUCKET; s++) {
+			long old = metaAt(s);
+			if ((old & VALID) == 0) {
+				records++;
+				write(s, key, m);
+				return 0;
+			}
+			int value = value(old);
+			if (value < victimValue) {
+				victim = s;
+				victimValue = value;
+			}
+		}
+		evictions++;
+		write(victim, key, m);
+		return 1;
+	}
+
+	/**
+	 * Method that writes a slot, key XORed with its metadata
+	 */
+	private void write(int slot, long key, long m) {
+		writeSlot(slot, key ^ m, m);
+	}
+
+	/**
+	 * Method that ranks a record for eviction: records of the current search first, then by depth
+	 *
+	 * @param m : the metadata of the record
+	 * @return a higher value for records worth keeping
+	 */
+	private int value(long m) {
+		return (generationOf(m) == generation ? 256 : 0) + depthOf(m);
+	}
+
+	private static int depthOf(long m) {
+		return (int) (m >>> DEPTH_SHIFT) & 0xff;
+	}
+
+	private static int generationOf(long m) {
+		return (int) (m >>> GENERATION_SHIFT) & 0xff;
+	}
+
+	@Override
+	/**
+	 * Constructor that removes the record with the given config from the dictionary
+	 *
+	 * @param config : the configuration string of the record to remove
+	 * @throws DictionaryException if the configuration is not found in the dictionary
+	 */
+	public void remove(String config) throws DictionaryException {
+		remove(Data.stringKey(config), null);
+	}
+
+	@Override
+	/**
+	 * Constructor that removes the record with the given key from the dictionary
+	 *
+	 * @param key : the Zobrist hash of the configuration to remove
+	 * @param packedConfig : ignored, records are identified by key only
+	 * @throws DictionaryException if the configuration is not found in the dictionary
+	 */
+	public void remove(long key, long[] packedConfig) throws DictionaryException {
+		int slot = find(key);
+		if (slot == -1) throw new DictionaryException();
+		writeSlot(slot, 0, 0);
+		records--;
+	}
+
+	@Override
+	/**
+	 * Constructor that returns the score stored with key config, or -1 if config is not in the dictionary
+	 *
+	 * @param config : the configuration string whose score is to be retrieved
+	 * @return the score associated with the configuration, or -1 if it is not found
+	 */
+	public int get(String config) {
+		return get(Data.stringKey(config), null);
+	}
+
+	@Override
+	/**
+	 * Constructor that returns the score stored with the given key, or -1 if it is not in the dictionary
+	 *
+	 * @param key : the Zobrist hash of the configuration whose score is to be retrieved
+	 * @param packedConfig : ignored, records are identified by key only
+	 * @return the score associated with the configuration, or -1 if it is not found
+	 */
+	public int get(long key, long[] packedConfig) {
+		int slot = find(key);
+		if (slot == -1) {
+			misses++;
+			return -1;
+		}
+		hits++;
+		return (int) metaAt(slot) & 0xff;
+	}
+
+	@Override
+	/**
+	 * Constructor that returns the record stored with the given key, or null if it is not in the dictionary
+	 *
+	 * @param key : the Zobrist hash of the configuration whose record is to be retrieved
+	 * @param packedConfig : ignored, records are identified by key only
+	 * @return a new Data holding the record, or null if it is not found
+	 */
+	public Data getData(long key, long[] packedConfig) {
+		int slot = find(key);
+		if (slot == -1) {
+			misses++;
+			return null;
+		}
+		hits++;
+		long m = metaAt(slot);
+		return new Data(key, null, (int) m & 0xff, depthOf(m), (int) (m >>> BOUND_SHIFT) & 3, (int) (m >>> MOVE_SHIFT) - 1);
+	}
+
+	@Override
+	/**
+	 * Constructor that returns the search result stored with the given key, without allocating
+	 *
+	 * @param key : the Zobrist hash of the configuration whose record is to be retrieved
+	 * @param packedConfig : ignored, records are identified by key only
+	 * @return the record packed by Data.pack, or Data.NONE if it is not found
+	 */
+	public long probe(long key, long[] packedConfig) {
+		int slot = find(key);
+		if (slot == -1) {
+			misses++;
+			return Data.NONE;
+		}
+		hits++;
+		long m = metaAt(slot);
+		return Data.pack((int) m & 0xff, depthOf(m), (int) (m >>> BOUND_SHIFT) & 3, (int) (m >>> MOVE_SHIFT) - 1);
+	}
+
+	@Override
+	/**
+	 * Constructor that returns the number of records stored in the dictionary
+	 *
+	 * @return the total number of records
+	 */
+	public int numRecords() {
+		return records;
+	}
+
+	/**
+	 * Returns the number of records the table can hold
+	 *
+	 * @return the number of slots
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the occupancy and replacement counters on one line
+	 *
+	 * @return a description of the table
+	 */
+	@Override
+	public String toString() {
+		long probes = hits + misses;
+		return String.format("table: occupancy=%.1f%% (%d/%d) hit-rate=%.1f%% stores=%d evictions=%d",
+				100.0 * records / capacity, records, capacity, probes == 0 ? 0 : 100.0 * hits / probes,
+				stores, evictions);
+	}
+}
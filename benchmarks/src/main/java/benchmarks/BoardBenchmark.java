@@ -0,0 +1,85 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import engine.Configurations;
+
+/**
+ * This class measures the board evaluation of Configurations on 3x3 to 9x9 boards
+ * Each call uses the next of a fixed set of random boards, 40% full with as many 'X' as 'O' (or one more)
+ *
+ * @author Ivory Huo
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+	private static final int BOARDS = 64; // Power of two
+
+	// Board size / length to win
+	@Param({"3/3", "4/3", "5/4", "6/4", "7/5", "8/5", "9/5"})
+	public String board;
+
+	private Configurations[] boards;
+	private int next;
+
+	@Setup
+	public void setup() {
+		String[] parts = board.split("/");
+		int size = Integer.parseInt(parts[0]);
+		int lengthToWin = Integer.parseInt(parts[1]);
+		Random random = new Random(7);
+		boards = new Configurations[BOARDS];
+		for (int b = 0; b < BOARDS; b++) {
+			boards[b] = new Configurations(size, lengthToWin, 1);
+			int plays = size * size * 2 / 5;
+			for (int i = 0; i < plays; i++) {
+				int row;
+				int col;
+				do {
+					row = random.nextInt(size);
+					col = random.nextInt(size);
+				} while (!boards[b].squareIsEmpty(row, col));
+				boards[b].savePlay(row, col, i % 2 == 0 ? 'X' : 'O');
+			}
+		}
+	}
+
+	private Configurations nextBoard() {
+		next = (next + 1) & (BOARDS - 1);
+		return boards[next];
+	}
+
+	@Benchmark
+	public boolean wins() {
+		Configurations configs = nextBoard();
+		return configs.wins('X') | configs.wins('O');
+	}
+
+	@Benchmark
+	public boolean isDraw() {
+		return nextBoard().isDraw();
+	}
+
+	@Benchmark
+	public int evalBoard() {
+		return nextBoard().evalBoard();
+	}
+}
@@ -0,0 +1,106 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import engine.Data;
+import engine.HashDictionary;
+
+/**
+ * This class measures HashDictionary.put, get and remove with compact keys, as the search uses them
+ * The table is created with records / loadFactor buckets, so it holds its records at that load factor
+ * without resizing; fill measures inserting them into a small table that resizes as it grows
+ *
+ * @author Ivory Huo
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DictionaryBenchmark {
+
+	private static final int EXTRA = 1024; // Records put and removed again by putRemove
+
+	@Param({"1000", "100000"})
+	public int records;
+
+	@Param({"0.125", "0.25", "0.5"})
+	public double loadFactor;
+
+	private HashDictionary dictionary;
+	private Data[] stored;
+	private Data[] missing;
+	private Data[] extra;
+	private int next;
+
+	@Setup
+	public void setup() {
+		SplittableRandom random = new SplittableRandom(42);
+		stored = records(random, records);
+		missing = records(random, records);
+		extra = records(random, EXTRA);
+		dictionary = new HashDictionary((int) (records / loadFactor));
+		for (Data record : stored) {
+			dictionary.put(record);
+		}
+	}
+
+	/**
+	 * Method that creates records with random keys, each packed board holding the index of the record
+	 */
+	private static Data[] records(SplittableRandom random, int count) {
+		Data[] data = new Data[count];
+		for (int i = 0; i < count; i++) {
+			data[i] = new Data(random.nextLong(), new long[] {random.nextLong()}, i & 3);
+		}
+		return data;
+	}
+
+	private int nextIndex(int count) {
+		if (++next >= count) next = 0;
+		return next;
+	}
+
+	@Benchmark
+	public int getHit() {
+		Data record = stored[nextIndex(records)];
+		return dictionary.get(record.getKey(), record.getPackedConfiguration());
+	}
+
+	@Benchmark
+	public int getMiss() {
+		Data record = missing[nextIndex(records)];
+		return dictionary.get(record.getKey(), record.getPackedConfiguration());
+	}
+
+	@Benchmark
+	public int putRemove() {
+		Data record = extra[nextIndex(EXTRA)];
+		int collision = dictionary.put(record);
+		dictionary.remove(record.getKey(), record.getPackedConfiguration());
+		return collision;
+	}
+
+	@Benchmark
+	public int fill() {
+		HashDictionary grown = new HashDictionary(16);
+		for (Data record : stored) {
+			grown.put(record);
+		}
+		return grown.numRecords();
+	}
+}